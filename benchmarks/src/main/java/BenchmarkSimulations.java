@@ -0,0 +1,71 @@
+import benchmarks.Simulation;
+import benchmarks.SimulationFactory;
+
+/**
+ * Builds the automata measured by the JMH benchmarks.
+ * Initial states are drawn from a fixed-seed {@link CounterRandomSource} so that every
+ * run of a benchmark steps the same grids.
+ */
+public class BenchmarkSimulations implements SimulationFactory {
+
+    private static final long SEED = 0x5EEDL; // Seed of every initial state.
+
+    @Override
+    public Simulation gameOfLife(String engine, int size, double density) {
+        CellularAutomaton automaton = GameOfLife.create(size, size, GameOfLife.Engine.valueOf(engine));
+        fill(automaton, density);
+        return wrap(automaton);
+    }
+
+    @Override
+    public Simulation forestFire(String storage, int size, double treeDensity, double ignitionProbability) {
+        ForestFire automaton = new ForestFire(size, size, treeDensity, ignitionProbability, SEED);
+        automaton.initializeRandomState();
+        automaton.setGridStorage(GridStorage.valueOf(storage));
+        return wrap(automaton);
+    }
+
+    @Override
+    public Simulation majority(int size, int neighborhoodSize, double density) {
+        CellularAutomaton automaton = new MajorityCellularAutomaton(size, size, neighborhoodSize);
+        fill(automaton, density);
+        return wrap(automaton);
+    }
+
+    @Override
+    public Simulation oneDimensional(String engine, int cells, int rule, double density) {
+        CellularAutomaton automaton = "BIT_PACKED".equals(engine)
+                ? new BitPackedCellularAutomaton1D(cells, rule, new int[0])
+                : new CellularAutomaton1D(cells, rule, new int[cells]);
+        fill(automaton, density);
+        return wrap(automaton);
+    }
+
+    /**
+     * Sets every cell to 1 with the given probability.
+     */
+    private static void fill(CellularAutomaton automaton, double density) {
+        RandomSource random = new CounterRandomSource(SEED);
+        for (int i = 0; i < automaton.getRows(); i++) {
+            for (int j = 0; j < automaton.getCols(); j++) {
+                int value = (random.nextDouble(RandomSource.INITIALIZATION, i, j) < density) ? 1 : 0;
+                automaton.setCell(i, j, value);
+            }
+        }
+    }
+
+    private static Simulation wrap(CellularAutomaton automaton) {
+        long cells = (long) automaton.getRows() * automaton.getCols();
+        return new Simulation() {
+            @Override
+            public void step() {
+                automaton.step();
+            }
+
+            @Override
+            public long cells() {
+                return cells;
+            }
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the "Game of Life" engines over grid sizes and initial densities.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class GameOfLifeBenchmark {
+
+    @Param({"GRID", "BIT_PACKED"})
+    public String engine;
+
+    @Param({"64", "256", "1024", "4096", "8192"})
+    public int size;
+
+    @Param({"0.1", "0.5"})
+    public double density;
+
+    private Simulation simulation;
+
+    @Setup
+    public void setUp() {
+        simulation = SimulationFactory.load().gameOfLife(engine, size, density);
+    }
+
+    /**
+     * Measures one generation; the score is in generations per second and the
+     * {@code cells} counter in cells per second.
+     */
+    @Benchmark
+    public void step(CellCounter counter) {
+        simulation.step();
+        counter.cells += simulation.cells();
+    }
+}
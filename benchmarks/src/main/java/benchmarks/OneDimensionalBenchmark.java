@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the one-dimensional engines over line lengths matching the 2D grid areas
+ * (64^2 to 8192^2 cells) and two representative rules.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class OneDimensionalBenchmark {
+
+    @Param({"GRID", "BIT_PACKED"})
+    public String engine;
+
+    @Param({"4096", "65536", "1048576", "16777216", "67108864"})
+    public int cells;
+
+    @Param({"30", "110"})
+    public int rule;
+
+    @Param({"0.5"})
+    public double density;
+
+    private Simulation simulation;
+
+    @Setup
+    public void setUp() {
+        simulation = SimulationFactory.load().oneDimensional(engine, cells, rule, density);
+    }
+
+    /**
+     * Measures one generation; the score is in generations per second and the
+     * {@code cells} counter in cells per second.
+     */
+    @Benchmark
+    public void step(CellCounter counter) {
+        simulation.step();
+        counter.cells += simulation.cells();
+    }
+}
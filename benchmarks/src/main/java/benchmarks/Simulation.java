@@ -0,0 +1,21 @@
+package benchmarks;
+
+/**
+ * A cellular automaton prepared for benchmarking.
+ * The automata live in the unnamed package, which named packages such as this one
+ * (and the code JMH generates) cannot import, so benchmarks drive them through this interface.
+ */
+public interface Simulation {
+
+    /**
+     * Advances the automaton by one generation.
+     */
+    void step();
+
+    /**
+     * Returns the number of cells updated by one generation.
+     *
+     * @return The number of cells of the automaton.
+     */
+    long cells();
+}
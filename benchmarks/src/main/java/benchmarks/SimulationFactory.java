@@ -0,0 +1,64 @@
+package benchmarks;
+
+/**
+ * Creates the {@link Simulation}s measured by the benchmarks.
+ * The implementation, {@code BenchmarkSimulations}, sits in the unnamed package next to the
+ * automata and is loaded reflectively by {@link #load()}.
+ */
+public interface SimulationFactory {
+
+    /**
+     * Creates a square 2D "Game of Life" grid.
+     *
+     * @param engine  The name of a {@code GameOfLife.Engine} constant.
+     * @param size    The number of rows and columns.
+     * @param density The probability of a cell being alive initially.
+     * @return The simulation.
+     */
+    Simulation gameOfLife(String engine, int size, double density);
+
+    /**
+     * Creates a square forest fire grid with a fixed seed.
+     *
+     * @param storage             The name of a {@code GridStorage} constant.
+     * @param size                The number of rows and columns.
+     * @param treeDensity         The density of trees in the initial forest.
+     * @param ignitionProbability The probability of a tree spontaneously catching fire.
+     * @return The simulation.
+     */
+    Simulation forestFire(String storage, int size, double treeDensity, double ignitionProbability);
+
+    /**
+     * Creates a square majority rule grid.
+     *
+     * @param size             The number of rows and columns.
+     * @param neighborhoodSize The side of the neighborhood.
+     * @param density          The probability of a cell being 1 initially.
+     * @return The simulation.
+     */
+    Simulation majority(int size, int neighborhoodSize, double density);
+
+    /**
+     * Creates a one-dimensional line.
+     *
+     * @param engine  {@code GRID} for {@code CellularAutomaton1D}, {@code BIT_PACKED} for the packed engine.
+     * @param cells   The number of cells of the line.
+     * @param rule    The Wolfram rule number.
+     * @param density The probability of a cell being 1 initially.
+     * @return The simulation.
+     */
+    Simulation oneDimensional(String engine, int cells, int rule, double density);
+
+    /**
+     * Loads the factory implemented next to the automata.
+     *
+     * @return The factory.
+     */
+    static SimulationFactory load() {
+        try {
+            return (SimulationFactory) Class.forName("BenchmarkSimulations").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkSimulations is not on the class path", e);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Observer handing the observed generations of a cellular automaton to a background writer.
+ * <p>
+ * The stepping thread only renders each generation into a byte buffer, reused from frame to
+ * frame, and hands it to a bounded queue; a background thread encodes the buffers and writes
+ * them. When the writer falls behind, the {@link BackpressurePolicy} decides whether the
+ * stepping thread waits or frames are dropped. After a write error the writer keeps draining
+ * the queue, so the stepping thread never blocks on it, and the error is thrown by the next
+ * {@link #onGeneration} and by {@link #close()}.
+ * <p>
+ * Subclasses render the frames with {@link #render}, encode them with {@link #encode} and call
+ * {@link #start()} at the end of their constructor.
+ */
+public abstract class AsyncFrameSink implements GenerationObserver, Closeable {
+
+    /**
+     * What the stepping thread does when the queue of pending frames is full.
+     */
+    public enum BackpressurePolicy {
+        BLOCK,    // Wait for the writer, at most the configured budget; the frame is dropped after that.
+        DROP,     // Drop the new frame.
+        COALESCE  // Replace the newest pending frame with the new one.
+    }
+
+    /**
+     * Longest wait of the {@code BLOCK} policy of the default constructors of the subclasses,
+     * in milliseconds: a writer that has not taken a frame in that time is far behind, and the
+     * run is not held up any longer for it.
+     */
+    public static final long DEFAULT_MAX_BLOCK_MILLIS = 1000;
+
+    private static final Frame END = new Frame(-1, null); // Queued by close() to stop the writer.
+
+    private final String name;                        // What the sink produces, for the messages.
+    private final BlockingQueue<byte[]> freeBuffers;  // Buffers released by the writer.
+    private final LinkedBlockingDeque<Frame> pending; // Frames waiting for the writer.
+    private final BackpressurePolicy policy;          // Behavior when the queue is full.
+    private final long maxBlockNanos;                 // Longest wait of the BLOCK policy.
+    private final Thread writer;                      // Background thread encoding the frames.
+
+    private boolean closed;             // Whether close() was called.
+
+    private volatile long writtenFrames;     // Frames written; updated by the writer only.
+    private volatile long droppedFrames;     // Frames dropped; updated by the stepping thread only.
+    private volatile long coalescedFrames;   // Frames replaced; updated by the stepping thread only.
+    private volatile long stallNanos;        // Time spent in onGeneration; updated by the stepping thread only.
+    private volatile IOException failure;    // First error of the writer.
+
+    /**
+     * Constructor for the {@code AsyncFrameSink} class. The writer starts with {@link #start()}.
+     *
+     * @param name          What the sink produces, e.g. "recording", used in the error messages
+     *                      and, with dashes, as the name of the writer thread.
+     * @param queueCapacity The maximum number of frames waiting for the writer.
+     * @param policy        What to do when the queue is full.
+     * @param maxBlock      The longest time the {@code BLOCK} policy waits for the writer.
+     * @param unit          The unit of {@code maxBlock}.
+     */
+    protected AsyncFrameSink(String name, int queueCapacity, BackpressurePolicy policy, long maxBlock, TimeUnit unit) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1: " + queueCapacity);
+        }
+        this.name = name;
+        this.pending = new LinkedBlockingDeque<>(queueCapacity);
+        this.freeBuffers = new ArrayBlockingQueue<>(queueCapacity + 2);
+        this.policy = policy;
+        this.maxBlockNanos = unit.toNanos(maxBlock);
+        this.writer = new Thread(this::writeFrames, name.replace(' ', '-') + "-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Starts the writer thread. Called once, at the end of the constructor of the subclass,
+     * so the writer never sees it partly constructed.
+     */
+    protected final void start() {
+        writer.start();
+    }
+
+    /**
+     * Renders the state of the automaton into a buffer and queues it for the writer,
+     * applying the backpressure policy if the queue is full.
+     *
+     * @param automaton  The observed cellular automaton.
+     * @param generation The generation of the current state.
+     */
+    @Override
+    public void onGeneration(CellularAutomaton automaton, long generation) {
+        long start = System.nanoTime();
+        if (failure != null) {
+            throw new UncheckedIOException("The " + name + " failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("The " + name + " is closed");
+        }
+        Frame frame = new Frame(generation, render(automaton, freeBuffers.poll()));
+        switch (policy) {
+            case DROP:
+                if (!pending.offerLast(frame)) {
+                    recycle(frame.buffer);
+                    droppedFrames++;
+                }
+                break;
+            case COALESCE:
+                while (!pending.offerLast(frame)) {
+                    Frame newest = pending.pollLast();
+                    if (newest != null) {
+                        recycle(newest.buffer);
+                        coalescedFrames++;
+                    }
+                }
+                break;
+            case BLOCK:
+            default:
+                try {
+                    if (!pending.offerLast(frame, maxBlockNanos, TimeUnit.NANOSECONDS)) {
+                        recycle(frame.buffer);
+                        droppedFrames++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    recycle(frame.buffer);
+                    droppedFrames++;
+                }
+                break;
+        }
+        stallNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Renders the state of the automaton into a buffer, on the stepping thread.
+     *
+     * @param automaton The observed cellular automaton.
+     * @param buffer    A buffer released by the writer, or {@code null} if none is free.
+     * @return The rendered buffer: {@code buffer}, or a new one if it was {@code null}.
+     */
+    protected abstract byte[] render(CellularAutomaton automaton, byte[] buffer);
+
+    /**
+     * Encodes and writes a rendered frame, on the writer thread.
+     *
+     * @param generation The generation of the frame.
+     * @param buffer     The rendered frame.
+     * @return A buffer the sink no longer needs, given back to {@link #render}, or {@code null}.
+     * @throws IOException If the frame cannot be written.
+     */
+    protected abstract byte[] encode(long generation, byte[] buffer) throws IOException;
+
+    /**
+     * Completes the output once every frame is written, on the writer thread.
+     * Not called after a write error.
+     *
+     * @throws IOException If the output cannot be completed.
+     */
+    protected void finish() throws IOException {
+    }
+
+    /**
+     * Closes the output of the sink, once the writer has stopped.
+     *
+     * @throws IOException If the output cannot be closed.
+     */
+    protected abstract void closeOutput() throws IOException;
+
+    /**
+     * Gives a buffer back to the pool used by {@link #render}.
+     */
+    private void recycle(byte[] buffer) {
+        if (buffer != null) {
+            freeBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Body of the writer thread: encodes and writes the queued frames until close() is called.
+     */
+    private void writeFrames() {
+        long written = 0;
+        while (true) {
+            Frame frame;
+            try {
+                frame = pending.takeFirst();
+            } catch (InterruptedException e) {
+                failure = new InterruptedIOException("The " + name + " was interrupted");
+                return;
+            }
+            if (frame == END) {
+                break;
+            }
+            if (failure != null) {
+                recycle(frame.buffer); // Keep draining so that the stepping thread never blocks on a dead writer.
+                continue;
+            }
+            try {
+                recycle(encode(frame.generation, frame.buffer));
+                writtenFrames = ++written;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure == null) {
+            try {
+                finish();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of frames written so far.
+     *
+     * @return The number of written frames.
+     */
+    public long getWrittenFrames() {
+        return writtenFrames;
+    }
+
+    /**
+     * Returns the number of frames dropped because the queue was full.
+     *
+     * @return The number of dropped frames.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Returns the number of pending frames replaced by a newer one under the {@code COALESCE} policy.
+     *
+     * @return The number of coalesced frames.
+     */
+    public long getCoalescedFrames() {
+        return coalescedFrames;
+    }
+
+    /**
+     * Returns the total time the stepping thread spent in {@link #onGeneration}, i.e. the
+     * cost of the sink for the simulation, including the waits of the {@code BLOCK} policy.
+     *
+     * @return The time spent rendering and queuing on the stepping thread, in nanoseconds.
+     */
+    public long getStallNanos() {
+        return stallNanos;
+    }
+
+    /**
+     * Waits for the pending frames to be written and closes the output.
+     *
+     * @throws IOException If a frame could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            pending.putLast(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the " + name);
+        } finally {
+            closeOutput();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Rendered buffer of one generation.
+     */
+    private static final class Frame {
+        final long generation;
+        final byte[] buffer;
+
+        Frame(long generation, byte[] buffer) {
+            this.generation = generation;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics listener aggregating the metrics of the steps of an automaton: latency percentiles,
+ * cumulated cell and allocation counters, and the latest cell counts per state.
+ * The aggregate can be read directly or published as an MBean with {@link #register(String)}.
+ * <p>
+ * Typical use:
+ * <pre>
+ * AutomatonMetrics metrics = new AutomatonMetrics();
+ * forest.addMetricsListener(metrics);
+ * metrics.register("forest");
+ * forest.run(1000);
+ * </pre>
+ */
+public class AutomatonMetrics implements MetricsListener, AutomatonMetricsMXBean {
+
+    /**
+     * Domain of the object names under which the metrics are registered.
+     */
+    public static final String DOMAIN = "cellular.automata";
+
+    private final LatencyHistogram latencies = new LatencyHistogram(); // Durations of the steps.
+    private long generation;           // Generation reached by the last step.
+    private long lastStepNanos;        // Duration of the last step.
+    private long lastUpdatedCells;     // Cells recomputed by the last step.
+    private long totalUpdatedCells;    // Cells recomputed since the last reset.
+    private long lastChangedCells;     // Cells changed by the last step, or -1.
+    private long totalChangedCells;    // Cells changed since the last reset, or -1.
+    private long lastAllocatedBytes;   // Bytes allocated by the last step, or -1.
+    private long totalAllocatedBytes;  // Bytes allocated since the last reset, or -1.
+    private long[] stateCounts = new long[0]; // Cells in each state after the last step.
+    private long liveCells = -1;       // Cells in a state other than 0 after the last step, or -1.
+    private ObjectName name;           // Name of the registered MBean, or null.
+
+    /**
+     * Records the metrics of a step.
+     *
+     * @param automaton The measured cellular automaton.
+     * @param metrics   The metrics of the step.
+     */
+    @Override
+    public synchronized void onMetrics(CellularAutomaton automaton, GenerationMetrics metrics) {
+        boolean first = latencies.getCount() == 0;
+        latencies.record(metrics.getStepNanos());
+        generation = metrics.getGeneration();
+        lastStepNanos = metrics.getStepNanos();
+        lastUpdatedCells = metrics.getUpdatedCells();
+        totalUpdatedCells += lastUpdatedCells;
+        lastChangedCells = metrics.getChangedCells();
+        totalChangedCells = accumulate(first, totalChangedCells, lastChangedCells);
+        lastAllocatedBytes = metrics.getAllocatedBytes();
+        totalAllocatedBytes = accumulate(first, totalAllocatedBytes, lastAllocatedBytes);
+        if (stateCounts.length != metrics.getCountedStates()) {
+            stateCounts = new long[metrics.getCountedStates()];
+        }
+        for (int v = 0; v < stateCounts.length; v++) {
+            stateCounts[v] = metrics.getCellsInState(v);
+        }
+        liveCells = metrics.getLiveCells();
+    }
+
+    /**
+     * Adds a counter that may be unknown (-1) to a total, which stays unknown once a value was.
+     */
+    private static long accumulate(boolean first, long total, long value) {
+        if (first) {
+            return value;
+        }
+        return (total < 0 || value < 0) ? -1 : total + value;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under the object name
+     * {@code cellular.automata:type=AutomatonMetrics,name=<name>}.
+     *
+     * @param name The name distinguishing this automaton from the other registered ones.
+     * @return The object name of the registered MBean.
+     * @throws JMException If the name is invalid or already registered.
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        if (this.name != null) {
+            throw new IllegalStateException("Already registered as " + this.name);
+        }
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=AutomatonMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.name = objectName;
+        return objectName;
+    }
+
+    /**
+     * Unregisters these metrics from the platform MBean server, if they were registered.
+     *
+     * @throws JMException If the MBean cannot be unregistered.
+     */
+    public synchronized void unregister() throws JMException {
+        if (name != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            name = null;
+        }
+    }
+
+    @Override
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public synchronized long getSteps() {
+        return latencies.getCount();
+    }
+
+    @Override
+    public synchronized long getLastStepNanos() {
+        return lastStepNanos;
+    }
+
+    @Override
+    public synchronized double getMeanStepNanos() {
+        return latencies.getMean();
+    }
+
+    @Override
+    public synchronized long getP50StepNanos() {
+        return latencies.getValueAtPercentile(50.0);
+    }
+
+    @Override
+    public synchronized long getP90StepNanos() {
+        return latencies.getValueAtPercentile(90.0);
+    }
+
+    @Override
+    public synchronized long getP99StepNanos() {
+        return latencies.getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public synchronized long getP999StepNanos() {
+        return latencies.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public synchronized long getMaxStepNanos() {
+        return latencies.getMax();
+    }
+
+    @Override
+    public synchronized long getLastUpdatedCells() {
+        return lastUpdatedCells;
+    }
+
+    @Override
+    public synchronized long getTotalUpdatedCells() {
+        return totalUpdatedCells;
+    }
+
+    @Override
+    public synchronized long getLastChangedCells() {
+        return lastChangedCells;
+    }
+
+    @Override
+    public synchronized long getTotalChangedCells() {
+        return totalChangedCells;
+    }
+
+    @Override
+    public synchronized long getLastAllocatedBytes() {
+        return lastAllocatedBytes;
+    }
+
+    @Override
+    public synchronized long getTotalAllocatedBytes() {
+        return totalAllocatedBytes;
+    }
+
+    @Override
+    public synchronized long[] getStateCounts() {
+        return stateCounts.clone();
+    }
+
+    @Override
+    public synchronized long getLiveCells() {
+        return liveCells;
+    }
+
+    /**
+     * Returns the value below or at which a percentage of the step durations fall.
+     *
+     * @param percentile The percentage, between 0 and 100.
+     * @return The step duration at that percentile, in nanoseconds.
+     */
+    public synchronized long getStepNanosAtPercentile(double percentile) {
+        return latencies.getValueAtPercentile(percentile);
+    }
+
+    @Override
+    public synchronized void reset() {
+        latencies.reset();
+        lastStepNanos = 0;
+        lastUpdatedCells = 0;
+        totalUpdatedCells = 0;
+        lastChangedCells = 0;
+        totalChangedCells = 0;
+        lastAllocatedBytes = 0;
+        totalAllocatedBytes = 0;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Management interface of {@link AutomatonMetrics}, exposing the metrics of an automaton
+ * over JMX, e.g. to JConsole or VisualVM. Latencies are in nanoseconds.
+ */
+public interface AutomatonMetricsMXBean {
+
+    /**
+     * @return The generation reached by the last step.
+     */
+    long getGeneration();
+
+    /**
+     * @return The number of steps measured since the last reset.
+     */
+    long getSteps();
+
+    /**
+     * @return The duration of the last step.
+     */
+    long getLastStepNanos();
+
+    /**
+     * @return The mean duration of the steps.
+     */
+    double getMeanStepNanos();
+
+    /**
+     * @return The median duration of the steps.
+     */
+    long getP50StepNanos();
+
+    /**
+     * @return The 90th percentile of the step durations.
+     */
+    long getP90StepNanos();
+
+    /**
+     * @return The 99th percentile of the step durations.
+     */
+    long getP99StepNanos();
+
+    /**
+     * @return The 99.9th percentile of the step durations.
+     */
+    long getP999StepNanos();
+
+    /**
+     * @return The longest step.
+     */
+    long getMaxStepNanos();
+
+    /**
+     * @return The number of cells recomputed by the last step.
+     */
+    long getLastUpdatedCells();
+
+    /**
+     * @return The number of cells recomputed since the last reset.
+     */
+    long getTotalUpdatedCells();
+
+    /**
+     * @return The number of cells changed by the last step, or -1 if unknown.
+     */
+    long getLastChangedCells();
+
+    /**
+     * @return The number of cells changed since the last reset, or -1 if unknown.
+     */
+    long getTotalChangedCells();
+
+    /**
+     * @return The bytes allocated by the last step, or -1 if unknown.
+     */
+    long getLastAllocatedBytes();
+
+    /**
+     * @return The bytes allocated since the last reset, or -1 if unknown.
+     */
+    long getTotalAllocatedBytes();
+
+    /**
+     * @return The number of cells in each state after the last step.
+     */
+    long[] getStateCounts();
+
+    /**
+     * @return The number of cells in a state other than 0 after the last step, or -1 if unknown.
+     */
+    long getLiveCells();
+
+    /**
+     * Forgets the measured steps.
+     */
+    void reset();
+}
@@ -0,0 +1,308 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class representing a one-dimensional elementary cellular automaton on a bit-packed line.
+ * The line is stored as an array of {@code long} words holding 64 cells each, and the
+ * 8-bit Wolfram rule is evaluated as a boolean function of the left, center and right
+ * bit planes, 64 cells per word operation. With the default zero boundary the results are
+ * identical to {@link CellularAutomaton1D}; every {@link BoundaryCondition} is supported, the
+ * ghost cells at both ends of the line being shifted into the first and last words.
+ */
+public class BitPackedCellularAutomaton1D extends CellularAutomaton {
+
+    private final int cols;           // Number of cells in the line.
+    private final int wordsPerRow;    // Number of 64-bit words needed to store the line.
+    private final long lastWordMask;  // Mask of the valid bits in the last word.
+    private final int rule;           // The Wolfram rule number (0 to 255).
+
+    /**
+     * Output of the rule for each neighborhood (4 * left + 2 * center + right),
+     * expanded to 0 or all ones so it can be selected with word-wide masks.
+     */
+    private final long[] ruleMasks = new long[8];
+
+    private long[] cells;             // Current generation, one bit per cell.
+    private long[] next;              // Scratch buffer receiving the next generation.
+
+    private final RowBandTask wordUpdater = this::updateWords; // Band task reused every generation.
+
+    /**
+     * Constructor for the {@code BitPackedCellularAutomaton1D} class with a zero boundary.
+     *
+     * @param cols         The number of cells in the line.
+     * @param rule         The rule used to determine the evolution of cells.
+     * @param initialState The initial state of the line; missing cells are 0.
+     */
+    public BitPackedCellularAutomaton1D(int cols, int rule, int[] initialState) {
+        this(cols, rule, initialState, false);
+    }
+
+    /**
+     * Constructor for the {@code BitPackedCellularAutomaton1D} class.
+     *
+     * @param cols         The number of cells in the line.
+     * @param rule         The rule used to determine the evolution of cells.
+     * @param initialState The initial state of the line; missing cells are 0.
+     * @param periodic     {@code true} to wrap the line around, i.e. a {@link BoundaryCondition#TOROIDAL}
+     *                     boundary, {@code false} for a zero boundary.
+     */
+    public BitPackedCellularAutomaton1D(int cols, int rule, int[] initialState, boolean periodic) {
+        super(); // The cells are kept in the packed representation only.
+        this.cols = cols;
+        this.wordsPerRow = (cols + 63) >>> 6;
+        this.lastWordMask = (cols & 63) == 0 ? -1L : (1L << (cols & 63)) - 1;
+        this.rule = rule;
+        for (int k = 0; k < 8; k++) {
+            ruleMasks[k] = -(long) ((rule >> k) & 1);
+        }
+        this.cells = new long[wordsPerRow];
+        this.next = new long[wordsPerRow];
+        for (int i = 0; i < Math.min(cols, initialState.length); i++) {
+            setCell(0, i, initialState[i]);
+        }
+        if (periodic) {
+            setBoundary(BoundaryCondition.TOROIDAL);
+        }
+    }
+
+    /**
+     * Randomly initializes the line.
+     * Each cell is randomly set to either 0 or 1 with equal probability.
+     */
+    @Override
+    public void initializeRandomState() {
+        Arrays.fill(cells, 0L);
+        for (int i = 0; i < cols; i++) {
+            if (initialRandom(0, i) >= 0.5) { // Randomly set the cell.
+                cells[i >>> 6] |= 1L << (i & 63);
+            }
+        }
+        markAllTilesDirty();
+    }
+
+    /**
+     * Evolves the line over a specified number of steps.
+     *
+     * @param numSteps The number of steps to evolve the automaton.
+     */
+    @Override
+    public void evolve(int numSteps) {
+        run(numSteps, new StatePrinter(false), 1); // Print the state before each step.
+    }
+
+    /**
+     * Applies the rule to every word of the line.
+     */
+    @Override
+    protected void applyRules() {
+        forEachRowBand(wordsPerRow, wordUpdater); // Compute the next state into the scratch buffer.
+
+        long[] previous = cells; // Swap the buffers; the old generation becomes the scratch buffer.
+        cells = next;
+        next = previous;
+    }
+
+    /**
+     * Computes the next state of a range of words into the scratch buffer.
+     * The rule is evaluated as a multiplexer tree selecting, for every bit,
+     * the rule output addressed by its right, center and left neighbors.
+     *
+     * @param fromWord The first word of the range (inclusive).
+     * @param toWord   The last word of the range (exclusive).
+     */
+    private void updateWords(int fromWord, int toWord) {
+        long[] m = ruleMasks;
+        for (int w = fromWord; w < toWord; w++) {
+            long c = cells[w];
+            long l = (c << 1) | leftCarry(w);
+            long r = (c >>> 1) | rightCarry(w);
+
+            long r00 = (r & m[1]) | (~r & m[0]); // left = 0, center = 0
+            long r01 = (r & m[3]) | (~r & m[2]); // left = 0, center = 1
+            long r10 = (r & m[5]) | (~r & m[4]); // left = 1, center = 0
+            long r11 = (r & m[7]) | (~r & m[6]); // left = 1, center = 1
+            long l0 = (c & r01) | (~c & r00);
+            long l1 = (c & r11) | (~c & r10);
+            next[w] = (l & l1) | (~l & l0);
+        }
+        if (toWord == wordsPerRow) {
+            next[wordsPerRow - 1] &= lastWordMask; // Keep the padding bits at 0.
+        }
+    }
+
+    /**
+     * Returns the bit shifted into position 0 of word {@code w} for the left neighbors.
+     */
+    private long leftCarry(int w) {
+        if (w > 0) {
+            return cells[w - 1] >>> 63;
+        }
+        int ghost = getBoundary().map(-1, cols); // The cell left of the line.
+        return (ghost >= 0) ? (long) getCell(0, ghost) : 0L;
+    }
+
+    /**
+     * Returns the bits completing the right neighbors of word {@code w}.
+     */
+    private long rightCarry(int w) {
+        if (w < wordsPerRow - 1) {
+            return cells[w + 1] << 63;
+        }
+        int ghost = getBoundary().map(cols, cols); // The cell right of the line.
+        return (ghost >= 0) ? (long) getCell(0, ghost) << ((cols - 1) & 63) : 0L;
+    }
+
+    /**
+     * Streams the space-time diagram of the next {@code steps} generations as a binary
+     * PBM (P4) image: one row of pixels per generation, black for cells in state 1.
+     * Each generation is written as soon as it is computed, so the diagram is never held
+     * in memory; the automaton is left {@code steps} generations ahead.
+     *
+     * @param steps The number of generations, i.e. the height of the image.
+     * @param out   The stream receiving the image; it is flushed but not closed.
+     * @throws IOException If the stream fails.
+     */
+    public void writeSpaceTime(int steps, OutputStream out) throws IOException {
+        out.write(("P4\n" + cols + " " + steps + "\n").getBytes(StandardCharsets.US_ASCII));
+        int rowBytes = (cols + 7) >>> 3;
+        byte[] row = new byte[wordsPerRow * 8]; // Reused for every generation.
+        for (int s = 0; s < steps; s++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                long pixels = Long.reverse(cells[w]); // PBM stores the leftmost pixel in the high bit.
+                for (int b = 0; b < 8; b++) {
+                    row[w * 8 + b] = (byte) (pixels >>> (56 - 8 * b));
+                }
+            }
+            out.write(row, 0, rowBytes);
+            step();
+        }
+        out.flush();
+    }
+
+    /**
+     * Returns whether the line wraps around.
+     *
+     * @return {@code true} for a {@link BoundaryCondition#TOROIDAL} boundary.
+     */
+    public boolean isPeriodic() {
+        return getBoundary() == BoundaryCondition.TOROIDAL;
+    }
+
+    /**
+     * Supports every boundary condition: the ghost cells at both ends of the line are read
+     * from the cells the boundary maps them to.
+     *
+     * @return {@code true}.
+     */
+    @Override
+    protected boolean supportsBoundary(BoundaryCondition boundary) {
+        return true;
+    }
+
+    /**
+     * Returns the Wolfram rule number of the automaton.
+     *
+     * @return The rule (0 to 255).
+     */
+    public int getRule() {
+        return rule;
+    }
+
+    /**
+     * Returns the number of rows of the automaton, which is always 1.
+     *
+     * @return 1.
+     */
+    @Override
+    public int getRows() {
+        return 1;
+    }
+
+    /**
+     * Returns the number of cells in the line.
+     *
+     * @return The number of cells.
+     */
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the number of states a cell can take, which is 2 (0 or 1).
+     *
+     * @return 2.
+     */
+    @Override
+    public int getStateCount() {
+        return 2;
+    }
+
+    /**
+     * Counts the cells in state 0 and 1 with one population count per word.
+     *
+     * @param counts The array receiving the number of cells in state 0 and 1.
+     */
+    @Override
+    protected void countStates(long[] counts) {
+        long ones = 0;
+        for (long word : cells) {
+            ones += Long.bitCount(word);
+        }
+        counts[0] = cols - ones;
+        counts[1] = ones;
+    }
+
+    /**
+     * Returns the state of a single cell.
+     *
+     * @param row The row index of the cell (always 0).
+     * @param col The position of the cell.
+     * @return The state of the cell (0 or 1).
+     */
+    @Override
+    public int getCell(int row, int col) {
+        return (int) (cells[col >>> 6] >>> (col & 63)) & 1;
+    }
+
+    /**
+     * Sets the state of a single cell.
+     *
+     * @param row   The row index of the cell (always 0).
+     * @param col   The position of the cell.
+     * @param value 1 to set the cell, 0 to clear it.
+     */
+    @Override
+    public void setCell(int row, int col, int value) {
+        long bit = 1L << (col & 63);
+        if (value != 0) {
+            cells[col >>> 6] |= bit;
+        } else {
+            cells[col >>> 6] &= ~bit;
+        }
+        markAllTilesDirty();
+    }
+
+    /**
+     * Writes the current state of the line in the same format as {@link CellularAutomaton1D}.
+     *
+     * @param out The writer receiving the text of the state.
+     * @throws IOException If the writer fails.
+     */
+    @Override
+    public void writeState(Writer out) throws IOException {
+        out.write('[');
+        for (int i = 0; i < cols; i++) {
+            if (i > 0) {
+                out.write(", ");
+            }
+            out.write(getCell(0, i) == 1 ? '1' : '0');
+        }
+        out.write(']');
+        out.write(System.lineSeparator());
+    }
+}
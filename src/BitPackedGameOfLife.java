@@ -0,0 +1,321 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Class representing Conway's "Game of Life", or any other two-state {@link LifeRule},
+ * on a bit-packed grid.
+ * Each row is stored as an array of {@code long} words holding 64 cells each
+ * (bit {@code c & 63} of word {@code c >>> 6} is column {@code c}), and the next
+ * generation is computed with bitwise adder logic on 64 cells at a time.
+ * The results are identical to {@link GameOfLife} and {@link LifeLikeAutomaton}:
+ * cells outside the grid are dead.
+ */
+public class BitPackedGameOfLife extends CellularAutomaton {
+
+    private final int rows;           // Number of rows in the grid.
+    private final int cols;           // Number of columns in the grid.
+    private final int wordsPerRow;    // Number of 64-bit words needed to store one row.
+    private final long lastWordMask;  // Mask of the valid bits in the last word of a row.
+    private final LifeRule rule;      // Rule of the automaton.
+    private final boolean conway;     // Whether the rule is B3/S23, which has a shorter formula.
+
+    private long[][] cells;           // Current generation, one bit per cell.
+    private long[][] next;            // Scratch buffer receiving the next generation.
+
+    private final RowBandTask rowUpdater = this::updateRows; // Band task reused every generation.
+
+    /**
+     * Constructor for the {@code BitPackedGameOfLife} class.
+     *
+     * @param rows The number of rows in the grid.
+     * @param cols The number of columns in the grid.
+     */
+    public BitPackedGameOfLife(int rows, int cols) {
+        this(rows, cols, LifeRule.CONWAY);
+    }
+
+    /**
+     * Constructor for the {@code BitPackedGameOfLife} class with another two-state rule,
+     * e.g. HighLife ({@code "B36/S23"}).
+     *
+     * @param rows The number of rows in the grid.
+     * @param cols The number of columns in the grid.
+     * @param rule The rule, which must have two states.
+     */
+    public BitPackedGameOfLife(int rows, int cols, LifeRule rule) {
+        super(); // The cells are kept in the packed representation only.
+        if (rule.getStates() != 2) {
+            throw new IllegalArgumentException("The bit-packed engine only runs two-state rules: " + rule);
+        }
+        this.rule = rule;
+        this.conway = rule.equals(LifeRule.CONWAY);
+        this.rows = rows;
+        this.cols = cols;
+        this.wordsPerRow = (cols + 63) >>> 6;
+        this.lastWordMask = (cols & 63) == 0 ? -1L : (1L << (cols & 63)) - 1;
+        this.cells = new long[rows][wordsPerRow];
+        this.next = new long[rows][wordsPerRow];
+    }
+
+    /**
+     * Randomly initializes the state of the grid.
+     * Each cell is randomly assigned a state of 0 (dead) or 1 (alive).
+     */
+    @Override
+    public void initializeRandomState() {
+        for (int i = 0; i < rows; i++) {
+            long[] row = cells[i];
+            Arrays.fill(row, 0L);
+            for (int j = 0; j < cols; j++) {
+                if (initialRandom(i, j) >= 0.5) { // Randomly make the cell alive.
+                    row[j >>> 6] |= 1L << (j & 63);
+                }
+            }
+        }
+        markAllTilesDirty();
+    }
+
+    /**
+     * Evolves the "Game of Life" simulation over a specified number of steps.
+     *
+     * @param numSteps The number of steps to evolve the simulation.
+     */
+    @Override
+    public void evolve(int numSteps) {
+        run(numSteps, new StatePrinter(true), 1); // Print the step number and state before each step.
+    }
+
+    /**
+     * Applies the rules of Conway's "Game of Life" to every word of the grid.
+     */
+    @Override
+    protected void applyRules() {
+        forEachRowBand(rows, rowUpdater); // Compute the next state into the scratch buffer.
+
+        long[][] previous = cells; // Swap the buffers; the old generation becomes the scratch buffer.
+        cells = next;
+        next = previous;
+    }
+
+    /**
+     * Computes the next state of a band of rows into the scratch buffer.
+     *
+     * @param fromRow The first row of the band (inclusive).
+     * @param toRow   The last row of the band (exclusive).
+     */
+    private void updateRows(int fromRow, int toRow) {
+        for (int i = fromRow; i < toRow; i++) {
+            long[] above = (i > 0) ? cells[i - 1] : null;
+            long[] below = (i < rows - 1) ? cells[i + 1] : null;
+            stepRow(above, cells[i], below, next[i]);
+        }
+    }
+
+    /**
+     * Computes the next generation of one row, 64 cells per iteration.
+     * The eight neighbors of each bit are summed with a tree of full adders,
+     * giving the neighbor count modulo 8 as three bit planes.
+     *
+     * @param above The row above, or {@code null} at the top edge.
+     * @param row   The row being updated.
+     * @param below The row below, or {@code null} at the bottom edge.
+     * @param out   The array receiving the next generation of the row.
+     */
+    private void stepRow(long[] above, long[] row, long[] below, long[] out) {
+        for (int w = 0; w < wordsPerRow; w++) {
+            long a = word(above, w);
+            long c = row[w];
+            long b = word(below, w);
+
+            // The eight neighbor planes, aligned on the updated cells.
+            long aw = west(above, w, a);
+            long ae = east(above, w, a);
+            long cw = west(row, w, c);
+            long ce = east(row, w, c);
+            long bw = west(below, w, b);
+            long be = east(below, w, b);
+
+            // Full adders: (aw, a, ae) and (cw, ce, bw), half adder: (b, be).
+            long s1 = aw ^ a ^ ae;
+            long c1 = (aw & a) | (ae & (aw ^ a));
+            long s2 = cw ^ ce ^ bw;
+            long c2 = (cw & ce) | (bw & (cw ^ ce));
+            long s3 = b ^ be;
+            long c3 = b & be;
+
+            // Ones: sum the three partial sums.
+            long ones = s1 ^ s2 ^ s3;
+            long c4 = (s1 & s2) | (s3 & (s1 ^ s2));
+
+            // Twos: sum the four carries of weight 2.
+            long t = c1 ^ c2 ^ c3;
+            long c5 = (c1 & c2) | (c3 & (c1 ^ c2));
+            long twos = t ^ c4;
+            long fours = c5 ^ (t & c4);
+
+            if (conway) {
+                // Survive with 2 or 3 neighbors, be born with exactly 3.
+                out[w] = twos & ~fours & (ones | c);
+            } else {
+                long eights = aw & a & ae & cw & ce & bw & b & be; // The count of 8 wraps to 0 above.
+                out[w] = (~c & matching(rule.getBirths(), ones, twos, fours, eights))
+                        | (c & matching(rule.getSurvivals(), ones, twos, fours, eights));
+            }
+        }
+        out[wordsPerRow - 1] &= lastWordMask; // Keep the padding bits dead.
+    }
+
+    /**
+     * Returns the word whose bits are set where the neighbor count is in a mask of counts.
+     *
+     * @param counts The mask of counts: bit {@code n} selects {@code n} neighbors.
+     * @param ones   Bit 0 of the counts modulo 8.
+     * @param twos   Bit 1 of the counts modulo 8.
+     * @param fours  Bit 2 of the counts modulo 8.
+     * @param eights The cells with 8 neighbors.
+     */
+    private static long matching(int counts, long ones, long twos, long fours, long eights) {
+        long result = ((counts & 0x100) != 0) ? eights : 0L;
+        for (int n = 0; n < 8; n++) {
+            if ((counts >>> n & 1) != 0) {
+                result |= ((n & 1) != 0 ? ones : ~ones) & ((n & 2) != 0 ? twos : ~twos)
+                        & ((n & 4) != 0 ? fours : ~fours) & ~eights;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a word of a row, treating a missing row as dead cells.
+     */
+    private static long word(long[] row, int w) {
+        return (row != null) ? row[w] : 0L;
+    }
+
+    /**
+     * Returns the word whose bit {@code k} holds the west neighbor (column - 1) of bit {@code k}.
+     */
+    private static long west(long[] row, int w, long current) {
+        if (row == null) {
+            return 0L;
+        }
+        long carry = (w > 0) ? row[w - 1] >>> 63 : 0L;
+        return (current << 1) | carry;
+    }
+
+    /**
+     * Returns the word whose bit {@code k} holds the east neighbor (column + 1) of bit {@code k}.
+     */
+    private long east(long[] row, int w, long current) {
+        if (row == null) {
+            return 0L;
+        }
+        long carry = (w < wordsPerRow - 1) ? row[w + 1] << 63 : 0L;
+        return (current >>> 1) | carry;
+    }
+
+    /**
+     * Returns the rule of the automaton.
+     *
+     * @return The rule.
+     */
+    public LifeRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Returns the number of rows in the grid.
+     *
+     * @return The number of rows.
+     */
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns in the grid.
+     *
+     * @return The number of columns.
+     */
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the number of states a cell can take, which is 2 (dead or alive).
+     *
+     * @return 2.
+     */
+    @Override
+    public int getStateCount() {
+        return 2;
+    }
+
+    /**
+     * Counts the dead and live cells with one population count per word.
+     *
+     * @param counts The array receiving the number of dead and live cells.
+     */
+    @Override
+    protected void countStates(long[] counts) {
+        long live = 0;
+        for (long[] row : cells) {
+            for (long word : row) {
+                live += Long.bitCount(word);
+            }
+        }
+        counts[0] = (long) rows * cols - live;
+        counts[1] = live;
+    }
+
+    /**
+     * Returns the state of a single cell.
+     *
+     * @param row The row index of the cell.
+     * @param col The column index of the cell.
+     * @return 1 if the cell is alive, otherwise 0.
+     */
+    @Override
+    public int getCell(int row, int col) {
+        return (int) (cells[row][col >>> 6] >>> (col & 63)) & 1;
+    }
+
+    /**
+     * Sets the state of a single cell.
+     *
+     * @param row   The row index of the cell.
+     * @param col   The column index of the cell.
+     * @param value 1 to make the cell alive, 0 to make it dead.
+     */
+    @Override
+    public void setCell(int row, int col, int value) {
+        long bit = 1L << (col & 63);
+        if (value != 0) {
+            cells[row][col >>> 6] |= bit;
+        } else {
+            cells[row][col >>> 6] &= ~bit;
+        }
+        markAllTilesDirty();
+    }
+
+    /**
+     * Writes the current state of the "Game of Life" grid.
+     * Uses "+" to represent alive cells and "-" for dead cells.
+     *
+     * @param out The writer receiving the text of the grid.
+     * @throws IOException If the writer fails.
+     */
+    @Override
+    public void writeState(Writer out) throws IOException {
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                out.write((getCell(i, j) == 1) ? "+ " : "- "); // "+" for alive, "-" for dead.
+            }
+            out.write(System.lineSeparator()); // Newline for the next row.
+        }
+        out.write(System.lineSeparator()); // Extra newline for better readability between steps.
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * The cells seen past the edges of the grid of a {@link CellularAutomaton}.
+ * <p>
+ * The automata load the cells next to a region into ghost cells around it, so the rules read
+ * their neighbors without bounds checks; the boundary condition decides what the ghost cells
+ * past the edges of the grid hold.
+ */
+public enum BoundaryCondition {
+    DEAD,       // Every cell past the edges is in state 0.
+    TOROIDAL,   // The grid wraps around: the last row is next to the first one, and so are the columns.
+    REFLECTIVE; // The edges are mirrors: the cell past an edge is the cell just inside it.
+
+    /**
+     * Returns the cell of the grid a row or column index stands for.
+     *
+     * @param index The row or column index, possibly outside the grid.
+     * @param size  The number of rows or columns of the grid.
+     * @return The index inside the grid, or -1 for a dead cell.
+     */
+    public int map(int index, int size) {
+        if (index >= 0 && index < size) {
+            return index;
+        }
+        switch (this) {
+            case TOROIDAL:
+                return Math.floorMod(index, size);
+            case REFLECTIVE:
+                int mirrored = Math.floorMod(index, 2 * size);
+                return (mirrored < size) ? mirrored : 2 * size - 1 - mirrored;
+            case DEAD:
+            default:
+                return -1;
+        }
+    }
+}
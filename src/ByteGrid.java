@@ -0,0 +1,69 @@
+/**
+ * Grid storing one byte per cell, for rules with at most 256 states.
+ */
+public class ByteGrid extends Grid {
+
+    private final byte[] cells; // Row-major cells, read back as unsigned bytes.
+
+    /**
+     * Constructor for the {@code ByteGrid} class.
+     *
+     * @param rows The number of rows in the grid.
+     * @param cols The number of columns in the grid.
+     */
+    public ByteGrid(int rows, int cols) {
+        super(rows, cols);
+        this.cells = new byte[Math.multiplyExact(rows, cols)];
+    }
+
+    @Override
+    public int get(int row, int col) {
+        return cells[row * cols + col] & 0xFF;
+    }
+
+    @Override
+    public void set(int row, int col, int value) {
+        cells[row * cols + col] = (byte) value;
+    }
+
+    @Override
+    public void getRow(int row, int[] cells) {
+        int start = row * cols;
+        for (int j = 0; j < cols; j++) {
+            cells[j] = this.cells[start + j] & 0xFF;
+        }
+    }
+
+    @Override
+    public void setRow(int row, int[] cells) {
+        int start = row * cols;
+        for (int j = 0; j < cols; j++) {
+            this.cells[start + j] = (byte) cells[j];
+        }
+    }
+
+    @Override
+    public void getRow(int row, int fromCol, byte[] cells, int offset, int length) {
+        System.arraycopy(this.cells, row * cols + fromCol, cells, offset, length);
+    }
+
+    @Override
+    public void setRow(int row, int fromCol, byte[] cells, int offset, int length) {
+        System.arraycopy(cells, offset, this.cells, row * cols + fromCol, length);
+    }
+
+    @Override
+    public void copyRows(Grid source, int fromRow, int toRow) {
+        if (!(source instanceof ByteGrid)) {
+            super.copyRows(source, fromRow, toRow);
+            return;
+        }
+        checkSameDimensions(source);
+        System.arraycopy(((ByteGrid) source).cells, fromRow * cols, cells, fromRow * cols, (toRow - fromRow) * cols);
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return cells.length;
+    }
+}
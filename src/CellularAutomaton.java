@@ -1,3 +1,19 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 /**
  * Abstract class representing a cellular automaton.
  * Cellular automata are discrete models defined on a grid of cells,
@@ -6,11 +22,140 @@
 public abstract class CellularAutomaton {
 
     /**
-     * 2D array representing the state of the cellular automaton.
-     * Each element in the array corresponds to the state of an individual cell.
-     * The dimensions of the array are rows x columns.
+     * Grid representing the state of the cellular automaton.
+     * Each cell of the grid corresponds to the state of an individual cell.
+     * The dimensions of the grid are rows x columns.
+     */
+    protected Grid state;
+
+    /**
+     * Preallocated buffer receiving the next generation, with the same dimensions and
+     * storage as {@code state}. The two buffers are exchanged by {@link #swapBuffers()}
+     * so that stepping does not allocate a new grid every generation.
+     */
+    protected Grid nextState;
+
+    /**
+     * Number of states a cell can take; every state lies in {@code [0, stateCount)}.
+     */
+    private int stateCount = Integer.MAX_VALUE;
+
+    /**
+     * Representation of {@code state} and {@code nextState}.
+     */
+    private GridStorage gridStorage;
+
+    /**
+     * What the rules see past the edges of the grid.
+     */
+    private BoundaryCondition boundary = BoundaryCondition.DEAD;
+
+    /**
+     * Number of generations computed since the automaton was created or initialized.
+     */
+    protected long generation;
+
+    /**
+     * Source of the random numbers drawn by {@link #initializeRandomState()} and by
+     * stochastic rules. Seeded randomly unless replaced by {@link #setSeed(long)} or
+     * {@link #setRandomSource(RandomSource)}.
+     */
+    protected RandomSource randomSource = new CounterRandomSource(ThreadLocalRandom.current().nextLong());
+
+    /**
+     * Kernel computing the rows of the rules stepped row by row, see {@link RowKernel}.
+     */
+    private RowKernel rowKernel = RowKernel.DEFAULT;
+
+    /**
+     * Number of threads used to apply the rules. A value of 1 runs every
+     * generation on the calling thread.
      */
-    protected int[][] state;
+    private int parallelism = 1;
+
+    /**
+     * Pool running the row bands when {@code parallelism} is greater than 1.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Fork/join tasks of each band task, kept between generations.
+     */
+    private final Map<RowBandTask, BandPlan> bandPlans = new IdentityHashMap<>();
+
+    /**
+     * Widest region of a step without activity tracking, in cells. Wider rows are cut into
+     * stripes, so the few rows of a region a rule keeps in flight stay in the L2 cache.
+     */
+    private static final int STRIPE_COLS = 1 << 14;
+
+    /**
+     * Number of rows of the regions of a step without activity tracking when the rows are cut
+     * into stripes: each block of rows is finished before the next, so the stripes of a block
+     * read the same pages of a memory-mapped grid while they are still resident.
+     */
+    private static final int STRIPE_ROWS = 256;
+
+    /**
+     * Side, in cells, of the square tiles used by activity tracking.
+     * A value of 0 disables tracking and every cell is recomputed every generation.
+     */
+    private int tileSize;
+
+    private int tileRows;                // Number of rows of tiles.
+    private int tileCols;                // Number of columns of tiles.
+    private long[][] changedTiles;       // Per tile row, bitmap of the tiles changed by the last step.
+    private long[][] nextChangedTiles;   // Bitmaps being filled by the current step.
+    private long[][] volatileTiles;      // Per tile row, bitmap of the tiles reported volatile.
+    private long[][] activeTiles;        // Bitmaps of the tiles recomputed by the current step.
+    private int[] skippedPerTileRow;     // Number of tiles skipped in each tile row by the current step.
+    private long[] updatedPerTileRow;    // Number of cells recomputed in each tile row by the current step.
+    private boolean allTilesDirty = true; // Whether the whole grid must be recomputed by the next step.
+    private long skippedTiles;           // Number of tiles skipped by the last step.
+    private long totalSkippedTiles;      // Number of tiles skipped since tracking was enabled.
+
+    /**
+     * What {@link #run(int, GenerationObserver, int)} does once cycle detection finds that
+     * the automaton has reached a fixed point or a cycle.
+     */
+    public enum CycleAction {
+        CONTINUE,   // Keep stepping; the cycle is only reported.
+        STOP,       // Return immediately, leaving the remaining steps undone.
+        SKIP_AHEAD  // Only compute the steps needed to end at the same point of the cycle.
+    }
+
+    private int cycleHistorySize;        // Number of recent state hashes kept, or 0 if detection is disabled.
+    private CycleAction cycleAction = CycleAction.CONTINUE; // Reaction of run() to a detected cycle.
+    private long[] hashHistory;          // Ring buffer of the hashes of recent generations.
+    private long[] generationHistory;    // Generation of each hash of the ring buffer.
+    private int historyCount;            // Number of valid entries in the ring buffer.
+    private int historyNext;             // Index of the next entry to overwrite.
+    private long stateHash;              // Zobrist hash of the current state.
+    private boolean stateHashStale = true; // Whether the hash must be recomputed from the cells.
+    private final AtomicLong stateHashDelta = new AtomicLong(); // Hash changes reported by the current step.
+    private long cyclePeriod;            // Period of the detected cycle, or 0.
+    private long cycleStart;             // Earliest known generation of the detected cycle.
+    private long cycleDetectedAt = -1;   // Generation at which the cycle was detected, or -1.
+
+    /**
+     * Largest number of states for which the cells of each state are counted.
+     */
+    public static final int MAX_COUNTED_STATES = 256;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final List<MetricsListener> metricsListeners = new CopyOnWriteArrayList<>();
+    private GenerationMetrics metrics;   // Metrics of the last step, reused, or null without listeners.
+    private AtomicLongArray stateCounts; // Number of cells in each state, or null if not counted.
+    private boolean stateCountsStale = true; // Whether the state counts must be recounted from the cells.
+    private boolean countingTransitions; // Whether the current step updates the state counts from its transitions.
+    private final AtomicLong changedCells = new AtomicLong(); // Changed cells reported by the current step.
+    private long updatedCells;           // Number of cells recomputed by the current step, or -1 if unknown.
+
+    private RegionTask regionTask;       // Region task of the step in progress.
+    private int tileRadius;              // Neighborhood radius of the step in progress, in tiles.
+    private final RowBandTask fullRowUpdater = this::updateFullRows;
+    private final RowBandTask tileRowUpdater = this::updateTileRows;
 
     /**
      * Initializes a new instance of the {@code CellularAutomaton} class
@@ -20,7 +165,908 @@ public abstract class CellularAutomaton {
      * @param cols The number of columns in the cellular automaton grid.
      */
     public CellularAutomaton(int rows, int cols) {
-        this.state = new int[rows][cols]; // Initialize the grid with the specified dimensions.
+        this(rows, cols, Integer.MAX_VALUE); // Any int may be stored in a cell.
+    }
+
+    /**
+     * Initializes a new instance of the {@code CellularAutomaton} class for a rule with a
+     * known number of states. The cells are stored one byte each when the states fit,
+     * otherwise one int each; see {@link #setGridStorage(GridStorage)} for denser storage.
+     *
+     * @param rows   The number of rows in the cellular automaton grid.
+     * @param cols   The number of columns in the cellular automaton grid.
+     * @param states The number of states a cell can take.
+     */
+    protected CellularAutomaton(int rows, int cols, int states) {
+        this(rows, cols, states, (states <= 256) ? GridStorage.BYTE : GridStorage.INT);
+    }
+
+    /**
+     * Initializes a new instance of the {@code CellularAutomaton} class for a rule with a
+     * known number of states, with the cells in the given storage. Grids larger than the
+     * heap must be created directly with {@link GridStorage#MAPPED}.
+     *
+     * @param rows    The number of rows in the cellular automaton grid.
+     * @param cols    The number of columns in the cellular automaton grid.
+     * @param states  The number of states a cell can take.
+     * @param storage The representation of the cells.
+     */
+    protected CellularAutomaton(int rows, int cols, int states, GridStorage storage) {
+        this.stateCount = states;
+        this.gridStorage = storage;
+        this.state = storage.create(rows, cols, states); // Initialize the grid with the specified dimensions.
+        this.nextState = storage.create(rows, cols, states); // Scratch buffer for the next generation.
+    }
+
+    /**
+     * Initializes a new instance of the {@code CellularAutomaton} class without allocating
+     * the grids. Intended for subclasses that keep the cells in their own
+     * representation; such subclasses must override the cell accessors below.
+     */
+    protected CellularAutomaton() {
+    }
+
+    /**
+     * Returns the number of rows in the grid.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return state.getRows();
+    }
+
+    /**
+     * Returns the number of columns in the grid.
+     *
+     * @return The number of columns.
+     */
+    public int getCols() {
+        return state.getCols();
+    }
+
+    /**
+     * Returns the state of a single cell.
+     *
+     * @param row The row index of the cell.
+     * @param col The column index of the cell.
+     * @return The state of the cell.
+     */
+    public int getCell(int row, int col) {
+        return state.get(row, col);
+    }
+
+    /**
+     * Sets the state of a single cell.
+     *
+     * @param row   The row index of the cell.
+     * @param col   The column index of the cell.
+     * @param value The new state of the cell.
+     */
+    public void setCell(int row, int col, int value) {
+        state.set(row, col, value);
+        markAllTilesDirty();
+    }
+
+    /**
+     * Copies the states of a row into an array, faster than calling {@link #getCell(int, int)}
+     * for every cell. Engines keeping the cells in their own representation fall back to
+     * {@code getCell}.
+     *
+     * @param row   The row index.
+     * @param cells The array receiving the {@code getCols()} states of the row.
+     */
+    public void getRow(int row, int[] cells) {
+        if (state != null) {
+            state.getRow(row, cells);
+            return;
+        }
+        for (int j = 0; j < getCols(); j++) {
+            cells[j] = getCell(row, j);
+        }
+    }
+
+    /**
+     * Sets the states of a row from an array, faster than calling {@link #setCell(int, int, int)}
+     * for every cell. Engines keeping the cells in their own representation fall back to
+     * {@code setCell}.
+     *
+     * @param row   The row index.
+     * @param cells The array holding the {@code getCols()} new states of the row.
+     */
+    public void setRow(int row, int[] cells) {
+        if (state != null) {
+            state.setRow(row, cells);
+            markAllTilesDirty();
+            return;
+        }
+        for (int j = 0; j < getCols(); j++) {
+            setCell(row, j, cells[j]);
+        }
+    }
+
+    /**
+     * Returns the number of states a cell can take.
+     *
+     * @return The number of states, or {@link Integer#MAX_VALUE} if any int may be stored.
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Returns the representation of the cells.
+     *
+     * @return The grid storage, or {@code null} for engines keeping the cells in their own representation.
+     */
+    public GridStorage getGridStorage() {
+        return gridStorage;
+    }
+
+    /**
+     * Changes the representation of the cells, keeping their states.
+     * {@link GridStorage#PACKED} uses the fewest bits the rule needs, e.g. 2 bits per cell
+     * for the three states of a forest fire instead of the 32 of an int.
+     *
+     * @param storage The new grid storage.
+     */
+    public void setGridStorage(GridStorage storage) {
+        if (state == null) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " keeps its own cell storage");
+        }
+        Grid grid = storage.create(state.getRows(), state.getCols(), stateCount);
+        grid.copyFrom(state);
+        state.release();
+        nextState.release();
+        state = grid;
+        nextState = storage.create(state.getRows(), state.getCols(), stateCount);
+        gridStorage = storage;
+        markAllTilesDirty(); // The new scratch buffer holds no skipped tiles.
+    }
+
+    /**
+     * Returns the source of the random numbers used by this automaton.
+     *
+     * @return The random source.
+     */
+    public RandomSource getRandomSource() {
+        return randomSource;
+    }
+
+    /**
+     * Replaces the source of the random numbers used by this automaton.
+     *
+     * @param randomSource The new random source.
+     */
+    public void setRandomSource(RandomSource randomSource) {
+        this.randomSource = randomSource;
+    }
+
+    /**
+     * Makes the random draws of this automaton reproducible from a seed.
+     * Two automata with the same parameters and seed produce the same generations,
+     * whatever parallelism level they use.
+     *
+     * @param seed The seed of the random draws.
+     */
+    public void setSeed(long seed) {
+        setRandomSource(new CounterRandomSource(seed));
+    }
+
+    /**
+     * Returns the kernel computing the rows of the rules stepped row by row.
+     *
+     * @return The row kernel, {@link RowKernel#DEFAULT} unless replaced.
+     */
+    public RowKernel getRowKernel() {
+        return rowKernel;
+    }
+
+    /**
+     * Replaces the kernel computing the rows of the rules stepped row by row,
+     * e.g. with a {@link ScalarRowKernel} to compare it with the vector kernel.
+     * Rules that do not use a row kernel ignore it.
+     *
+     * @param rowKernel The new row kernel.
+     */
+    public void setRowKernel(RowKernel rowKernel) {
+        this.rowKernel = Objects.requireNonNull(rowKernel);
+    }
+
+    /**
+     * Returns what the rules see past the edges of the grid.
+     *
+     * @return The boundary condition, {@link BoundaryCondition#DEAD} unless replaced.
+     */
+    public BoundaryCondition getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Changes what the rules see past the edges of the grid, e.g. {@link BoundaryCondition#TOROIDAL}
+     * to wrap the grid around. The cells keep their states.
+     *
+     * @param boundary The new boundary condition.
+     * @throws UnsupportedOperationException If the engine does not support the boundary condition.
+     */
+    public void setBoundary(BoundaryCondition boundary) {
+        if (!supportsBoundary(Objects.requireNonNull(boundary))) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support the " + boundary + " boundary");
+        }
+        this.boundary = boundary;
+        markAllTilesDirty(); // The cells next to the edges may now step differently.
+    }
+
+    /**
+     * Returns whether the rules of this automaton can run with a boundary condition.
+     * Automata only supporting dead cells past the edges keep this default.
+     *
+     * @param boundary The boundary condition.
+     * @return {@code true} if {@link #setBoundary(BoundaryCondition)} accepts it.
+     */
+    protected boolean supportsBoundary(BoundaryCondition boundary) {
+        return boundary == BoundaryCondition.DEAD;
+    }
+
+    /**
+     * Returns the random number drawn for a cell by {@link #initializeRandomState()}.
+     *
+     * @param row The row index of the cell.
+     * @param col The column index of the cell.
+     * @return A random number in [0, 1).
+     */
+    protected double initialRandom(int row, int col) {
+        return randomSource.nextDouble(RandomSource.INITIALIZATION, row, col);
+    }
+
+    /**
+     * Returns the number of threads used to apply the rules.
+     *
+     * @return The parallelism level (1 for sequential stepping).
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to apply the rules.
+     * The grid is split into row bands which are updated concurrently on a
+     * {@link ForkJoinPool}; every band of a generation completes before the
+     * next generation starts, so the result does not depend on this setting.
+     *
+     * @param parallelism The parallelism level (1 for sequential stepping).
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        if (pool != null) {
+            pool.shutdown(); // Release the threads of the previous pool.
+            pool = null;
+        }
+        this.parallelism = parallelism;
+        if (parallelism > 1) {
+            pool = new ForkJoinPool(parallelism);
+        }
+    }
+
+    /**
+     * Releases the resources the automaton holds outside the heap: the threads of its pool and
+     * the mappings of {@link GridStorage#MAPPED} grids, whose backing files are deleted right away.
+     * The automaton must not be used afterwards.
+     */
+    public void release() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+            parallelism = 1;
+        }
+        if (state != null) {
+            state.release();
+            nextState.release();
+        }
+    }
+
+    /**
+     * Task updating a contiguous band of rows of the next generation.
+     * Implementations may only read the current generation and write the rows
+     * {@code fromRow} (inclusive) to {@code toRow} (exclusive) of the next one.
+     */
+    @FunctionalInterface
+    protected interface RowBandTask {
+        void apply(int fromRow, int toRow);
+    }
+
+    /**
+     * Runs a task over the rows {@code 0} to {@code rows - 1}, split into bands.
+     * Returns once every band has completed, which acts as the per-generation barrier.
+     * The fork/join tasks of a given band task are built once and reused every generation.
+     *
+     * @param rows The number of rows to cover.
+     * @param task The task updating one band of rows.
+     */
+    protected void forEachRowBand(int rows, RowBandTask task) {
+        if (pool == null || rows < 2) {
+            task.apply(0, rows); // Sequential path.
+            return;
+        }
+        BandPlan plan = bandPlans.get(task);
+        if (plan == null || plan.rows != rows || plan.parallelism != parallelism) {
+            plan = new BandPlan(task, rows, parallelism);
+            bandPlans.put(task, plan);
+        }
+        plan.reinitialize();
+        pool.invoke(plan);
+    }
+
+    /**
+     * Runs a one-off task over the rows {@code 0} to {@code rows - 1}, split into bands like
+     * {@link #forEachRowBand(int, RowBandTask)} but without keeping its fork/join tasks,
+     * so tasks built for a single call are not retained by the automaton.
+     *
+     * @param rows The number of rows to cover.
+     * @param task The task processing one band of rows.
+     */
+    protected void forEachRowBandOnce(int rows, RowBandTask task) {
+        if (pool == null || rows < 2) {
+            task.apply(0, rows);
+            return;
+        }
+        pool.invoke(new BandPlan(task, rows, parallelism));
+    }
+
+    /**
+     * Fork/join action running a fixed set of row bands and waiting for all of them.
+     */
+    private static final class BandPlan extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int rows;
+        private final int parallelism;
+        private final RowBandAction[] bands;
+
+        BandPlan(RowBandTask task, int rows, int parallelism) {
+            this.rows = rows;
+            this.parallelism = parallelism;
+            // A few bands per thread so that uneven bands can be balanced by work stealing.
+            int count = Math.min(rows, parallelism * 4);
+            this.bands = new RowBandAction[count];
+            for (int b = 0; b < count; b++) {
+                bands[b] = new RowBandAction(task, (int) ((long) rows * b / count),
+                        (int) ((long) rows * (b + 1) / count));
+            }
+        }
+
+        @Override
+        protected void compute() {
+            for (RowBandAction band : bands) {
+                band.reinitialize();
+            }
+            invokeAll(bands);
+        }
+    }
+
+    /**
+     * Fork/join action updating one band of rows.
+     */
+    private static final class RowBandAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RowBandTask task;
+        private final int fromRow;
+        private final int toRow;
+
+        RowBandAction(RowBandTask task, int fromRow, int toRow) {
+            this.task = task;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            task.apply(fromRow, toRow);
+        }
+    }
+
+    /**
+     * Task updating a rectangular region of the next generation, used with activity tracking.
+     * Implementations read the current generation, write the rows {@code fromRow} to
+     * {@code toRow} and columns {@code fromCol} to {@code toCol} (exclusive) of the next one,
+     * and report what happened as a combination of {@link #TILE_CHANGED} and {@link #TILE_VOLATILE}.
+     */
+    @FunctionalInterface
+    protected interface RegionTask {
+        int update(int fromRow, int toRow, int fromCol, int toCol);
+    }
+
+    /**
+     * Region flag: at least one cell of the region changed state.
+     * The region and its neighbors are recomputed by the next step.
+     */
+    protected static final int TILE_CHANGED = 1;
+
+    /**
+     * Region flag: the region must be recomputed by the next step even if nothing
+     * around it changes, e.g. because its cells can change spontaneously.
+     */
+    protected static final int TILE_VOLATILE = 2;
+
+    /**
+     * Enables or disables activity tracking.
+     * When enabled, the grid is divided into {@code tileSize x tileSize} tiles and a step only
+     * recomputes the tiles that changed in the previous step, their neighbors within the rule's
+     * radius, and volatile tiles. The other tiles are skipped, so the cost of a generation scales
+     * with the activity rather than the area of the grid. Results are unchanged.
+     *
+     * @param tileSize The side of the tiles in cells, or 0 to disable tracking.
+     */
+    public void setActivityTracking(int tileSize) {
+        if (tileSize < 0) {
+            throw new IllegalArgumentException("Tile size must not be negative: " + tileSize);
+        }
+        this.tileSize = tileSize;
+        this.skippedTiles = 0;
+        this.totalSkippedTiles = 0;
+        if (tileSize > 0) {
+            tileRows = (getRows() + tileSize - 1) / tileSize;
+            tileCols = (getCols() + tileSize - 1) / tileSize;
+            int words = (tileCols + 63) >>> 6;
+            changedTiles = new long[tileRows][words];
+            nextChangedTiles = new long[tileRows][words];
+            volatileTiles = new long[tileRows][words];
+            activeTiles = new long[tileRows][words];
+            skippedPerTileRow = new int[tileRows];
+            updatedPerTileRow = new long[tileRows];
+        } else {
+            changedTiles = nextChangedTiles = volatileTiles = activeTiles = null;
+            skippedPerTileRow = null;
+            updatedPerTileRow = null;
+        }
+        markAllTilesDirty();
+    }
+
+    /**
+     * Returns the side of the tiles used by activity tracking.
+     *
+     * @return The tile size, or 0 if tracking is disabled.
+     */
+    public int getActivityTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Returns the number of tiles of the grid when activity tracking is enabled.
+     *
+     * @return The number of tiles, or 0 if tracking is disabled.
+     */
+    public long getTileCount() {
+        return (long) tileRows * tileCols;
+    }
+
+    /**
+     * Returns the number of tiles skipped by the last step.
+     *
+     * @return The number of tiles that were not recomputed.
+     */
+    public long getSkippedTiles() {
+        return skippedTiles;
+    }
+
+    /**
+     * Returns the number of tiles skipped since activity tracking was enabled.
+     *
+     * @return The cumulated number of tiles that were not recomputed.
+     */
+    public long getTotalSkippedTiles() {
+        return totalSkippedTiles;
+    }
+
+    /**
+     * Forces the next step to recompute every cell, and restarts cycle detection and state counting.
+     * Must be called whenever {@code state} is modified outside of a step.
+     */
+    protected void markAllTilesDirty() {
+        allTilesDirty = true;
+        stateHashStale = true;
+        stateCountsStale = true;
+        historyCount = 0;
+        cyclePeriod = 0;
+        cycleDetectedAt = -1;
+    }
+
+    /**
+     * Enables or disables cycle detection.
+     * When enabled, a 64-bit Zobrist hash of the state is kept after every step together with the
+     * hashes of the last {@code historySize} generations. A repeated hash means the automaton has
+     * reached a fixed point (period 1) or a cycle of at most {@code historySize} generations.
+     * Rules reporting their changed cells keep the hash up to date in time proportional to the
+     * changes; other engines rehash the whole grid every step. Only deterministic automata are supported.
+     *
+     * @param historySize The number of generations remembered, or 0 to disable detection.
+     * @param action      What {@link #run(int, GenerationObserver, int)} does once a cycle is found.
+     */
+    public void setCycleDetection(int historySize, CycleAction action) {
+        if (historySize < 0) {
+            throw new IllegalArgumentException("History size must not be negative: " + historySize);
+        }
+        if (historySize > 0 && !isDeterministic()) {
+            throw new IllegalStateException(getClass().getSimpleName()
+                    + " is not deterministic; a repeated state does not imply a cycle");
+        }
+        this.cycleHistorySize = historySize;
+        this.cycleAction = action;
+        this.hashHistory = (historySize > 0) ? new long[historySize] : null;
+        this.generationHistory = (historySize > 0) ? new long[historySize] : null;
+        markAllTilesDirty();
+        if (historySize > 0) {
+            updateCycleDetection(); // Remember the current state.
+        }
+    }
+
+    /**
+     * Returns whether a fixed point or cycle has been detected.
+     *
+     * @return {@code true} once a state has repeated.
+     */
+    public boolean isCycleDetected() {
+        return cycleDetectedAt >= 0;
+    }
+
+    /**
+     * Returns the period of the detected cycle.
+     *
+     * @return 1 for a fixed point, the number of generations of the cycle, or 0 if none was detected.
+     */
+    public long getCyclePeriod() {
+        return cyclePeriod;
+    }
+
+    /**
+     * Returns the earliest remembered generation whose state belongs to the detected cycle.
+     * The cycle may have started earlier than the history reaches.
+     *
+     * @return The first known generation of the cycle, or -1 if none was detected.
+     */
+    public long getCycleStart() {
+        return isCycleDetected() ? cycleStart : -1;
+    }
+
+    /**
+     * Returns the generation at which the detected cycle was noticed.
+     *
+     * @return The generation of the repeated state, or -1 if none was detected.
+     */
+    public long getCycleDetectedAt() {
+        return cycleDetectedAt;
+    }
+
+    /**
+     * Returns the Zobrist hash of the current state, i.e. the XOR of
+     * {@link #zobristKey(int, int, int)} over every cell.
+     *
+     * @return The hash of the current state.
+     */
+    public long getStateHash() {
+        if (stateHashStale || cycleHistorySize == 0 || !reportsCellChanges()) {
+            return computeStateHash();
+        }
+        return stateHash;
+    }
+
+    /**
+     * Returns the random key of a cell in a given state; the state hash is the XOR of the keys
+     * of all the cells. State 0 has key 0, so only the other states contribute.
+     *
+     * @param row   The row index of the cell.
+     * @param col   The column index of the cell.
+     * @param value The state of the cell.
+     * @return The key of the cell in that state.
+     */
+    protected static long zobristKey(int row, int col, int value) {
+        if (value == 0) {
+            return 0L;
+        }
+        long z = ((long) row << 32 | (col & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L + value * 0xD1B54A32D192ED03L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L; // SplitMix64 finalizer.
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns whether the current step must include the state hash changes in
+     * {@link #recordChanges(long, long)}.
+     *
+     * @return {@code true} while cycle detection is enabled.
+     */
+    protected boolean isStateHashing() {
+        return cycleHistorySize > 0;
+    }
+
+    /**
+     * Reports the number of cells the current step recomputed, for rules that do not step
+     * through {@link #stepRegions(RegionTask, int)}, e.g. because they only visit active cells.
+     * Without a report, the metrics count every cell of the grid.
+     *
+     * @param cells The number of cells recomputed by the step.
+     */
+    protected void recordUpdatedCells(long cells) {
+        updatedCells = cells;
+    }
+
+    /**
+     * Reports the cells changed by a region of the current step. {@code hashDelta} is the XOR of
+     * {@code zobristKey(row, col, old) ^ zobristKey(row, col, next)} over the changed cells, or 0
+     * when {@link #isStateHashing()} is false.
+     * May be called concurrently by the tasks of a step, ideally once per region.
+     *
+     * @param changedCells The number of changed cells.
+     * @param hashDelta    The XOR of the key changes.
+     */
+    protected void recordChanges(long changedCells, long hashDelta) {
+        if (hashDelta != 0) {
+            long current;
+            do {
+                current = stateHashDelta.get();
+            } while (!stateHashDelta.compareAndSet(current, current ^ hashDelta));
+        }
+        if (metrics != null) {
+            this.changedCells.addAndGet(changedCells);
+        }
+    }
+
+    /**
+     * Reports that {@code count} cells of a region went from state {@code from} to state {@code to}
+     * in the current step, which keeps the per-state counts of the metrics up to date.
+     * May be called concurrently by the tasks of a step, ideally once per region and transition.
+     *
+     * @param from  The state of the cells before the step.
+     * @param to    The state of the cells after the step.
+     * @param count The number of cells.
+     */
+    protected void recordTransitions(int from, int to, long count) {
+        if (countingTransitions && count != 0) {
+            stateCounts.addAndGet(from, -count);
+            stateCounts.addAndGet(to, count);
+        }
+    }
+
+    /**
+     * Returns whether the rules report every cell change with {@link #recordChanges(long, long)}
+     * and {@link #recordTransitions(int, int, long)}. Otherwise the state is rehashed after every
+     * step, and the cells of each state are recounted when metrics are collected.
+     *
+     * @return {@code true} if the state hash and counts are maintained incrementally.
+     */
+    protected boolean reportsCellChanges() {
+        return false;
+    }
+
+    /**
+     * Returns whether the next generation only depends on the current cells, which
+     * cycle detection requires.
+     *
+     * @return {@code true} for deterministic rules.
+     */
+    protected boolean isDeterministic() {
+        return true;
+    }
+
+    /**
+     * Computes the state hash from every cell.
+     */
+    private long computeStateHash() {
+        int[] cells = new int[getCols()];
+        long hash = 0;
+        for (int i = 0; i < getRows(); i++) {
+            getRow(i, cells);
+            for (int j = 0; j < cells.length; j++) {
+                hash ^= zobristKey(i, j, cells[j]);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Updates the state hash after a step and looks it up in the history of recent generations.
+     */
+    private void updateCycleDetection() {
+        long delta = stateHashDelta.getAndSet(0);
+        if (isCycleDetected()) {
+            stateHashStale = true; // A deterministic automaton stays in its cycle; stop tracking the hash.
+            return;
+        }
+        if (stateHashStale || !reportsCellChanges()) {
+            stateHash = computeStateHash();
+            stateHashStale = false;
+        } else {
+            stateHash ^= delta;
+        }
+        for (int k = 0; k < historyCount; k++) {
+            if (hashHistory[k] == stateHash) {
+                cycleStart = generationHistory[k];
+                cyclePeriod = generation - cycleStart;
+                cycleDetectedAt = generation;
+                return;
+            }
+        }
+        hashHistory[historyNext] = stateHash;
+        generationHistory[historyNext] = generation;
+        historyNext = (historyNext + 1) % cycleHistorySize;
+        historyCount = Math.min(historyCount + 1, cycleHistorySize);
+    }
+
+    /**
+     * Computes the next generation into {@code nextState} with a region task.
+     * Without activity tracking the task is run over full-width row bands, cut into stripes of
+     * 16384 columns and blocks of 256 rows when the rows are wider.
+     * With tracking, it is only run over active tiles: a skipped tile did not change in the
+     * previous step, so the scratch buffer already holds its next state.
+     *
+     * @param task   The task updating one region.
+     * @param radius The radius of the rule's neighborhood, in cells.
+     */
+    protected void stepRegions(RegionTask task, int radius) {
+        regionTask = task;
+        if (tileSize == 0) {
+            forEachRowBand(getRows(), fullRowUpdater);
+            updatedCells = (long) getRows() * getCols();
+            return;
+        }
+        tileRadius = (radius + tileSize - 1) / tileSize;
+        if (boundary == BoundaryCondition.TOROIDAL) {
+            tileRadius++; // The last tiles may be partial, so a neighbor across the seam may be one tile further.
+        }
+        computeActiveTiles();
+        forEachRowBand(tileRows, tileRowUpdater);
+
+        long skipped = 0;
+        long updated = 0;
+        for (int tr = 0; tr < tileRows; tr++) {
+            skipped += skippedPerTileRow[tr];
+            updated += updatedPerTileRow[tr];
+        }
+        skippedTiles = skipped;
+        updatedCells = updated;
+        totalSkippedTiles += skipped;
+
+        long[][] previous = changedTiles; // The tiles changed by this step drive the next one.
+        changedTiles = nextChangedTiles;
+        nextChangedTiles = previous;
+    }
+
+    /**
+     * Runs the region task of the step in progress over a band of full rows, stripe by stripe
+     * when the rows are wider than {@link #STRIPE_COLS}.
+     */
+    private void updateFullRows(int fromRow, int toRow) {
+        int cols = getCols();
+        if (cols <= STRIPE_COLS) {
+            regionTask.update(fromRow, toRow, 0, cols);
+            return;
+        }
+        for (int blockRow = fromRow; blockRow < toRow; blockRow += STRIPE_ROWS) {
+            int blockEnd = Math.min(toRow, blockRow + STRIPE_ROWS);
+            for (int stripe = 0; stripe < cols; stripe += STRIPE_COLS) {
+                regionTask.update(blockRow, blockEnd, stripe, Math.min(cols, stripe + STRIPE_COLS));
+            }
+        }
+    }
+
+    /**
+     * Marks as active every tile within {@code tileRadius} tiles of a tile changed by the
+     * previous step, and every tile the previous step reported as volatile. On a toroidal
+     * grid the distance wraps around; the tiles at the left and right edges are then all
+     * marked active together.
+     */
+    private void computeActiveTiles() {
+        int words = activeTiles[0].length;
+        if (allTilesDirty) {
+            for (long[] row : activeTiles) {
+                Arrays.fill(row, -1L);
+            }
+            allTilesDirty = false;
+            return;
+        }
+        boolean wraps = boundary == BoundaryCondition.TOROIDAL;
+        for (int tr = 0; tr < tileRows; tr++) {
+            long[] active = activeTiles[tr];
+            Arrays.fill(active, 0L);
+            int fromRow = wraps ? tr - tileRadius : Math.max(0, tr - tileRadius);
+            int toRow = wraps ? tr + tileRadius : Math.min(tileRows - 1, tr + tileRadius);
+            for (int r = fromRow; r <= toRow; r++) {
+                long[] changed = changedTiles[Math.floorMod(r, tileRows)];
+                for (int w = 0; w < words; w++) {
+                    active[w] |= changed[w];
+                }
+            }
+            boolean acrossSeam = wraps && (anyTile(active, 0, tileRadius) || anyTile(active, tileCols - tileRadius, tileCols));
+            for (int step = 0; step < tileRadius; step++) {
+                long carryIn = 0;
+                for (int w = 0; w < words; w++) { // Spread every bit to its left and right neighbors.
+                    long bits = active[w];
+                    long fromNext = (w + 1 < words) ? active[w + 1] << 63 : 0L;
+                    active[w] = bits | (bits << 1) | carryIn | (bits >>> 1) | fromNext;
+                    carryIn = bits >>> 63;
+                }
+            }
+            if (acrossSeam) {
+                setTiles(active, 0, tileRadius);
+                setTiles(active, tileCols - tileRadius, tileCols);
+            }
+            long[] volatiles = volatileTiles[tr];
+            for (int w = 0; w < words; w++) {
+                active[w] |= volatiles[w];
+            }
+        }
+    }
+
+    /**
+     * Returns whether a bitmap of tiles has a bit set between two tile columns, clamped to the grid.
+     */
+    private boolean anyTile(long[] tiles, int fromTile, int toTile) {
+        for (int tc = Math.max(fromTile, 0); tc < Math.min(toTile, tileCols); tc++) {
+            if ((tiles[tc >>> 6] & 1L << tc) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the bits of a bitmap of tiles between two tile columns, clamped to the grid.
+     */
+    private void setTiles(long[] tiles, int fromTile, int toTile) {
+        for (int tc = Math.max(fromTile, 0); tc < Math.min(toTile, tileCols); tc++) {
+            tiles[tc >>> 6] |= 1L << tc;
+        }
+    }
+
+    /**
+     * Runs the region task of the step in progress over the active tiles of a band of tile rows.
+     */
+    private void updateTileRows(int fromTileRow, int toTileRow) {
+        int rows = getRows();
+        int cols = getCols();
+        for (int tr = fromTileRow; tr < toTileRow; tr++) {
+            long[] active = activeTiles[tr];
+            long[] changed = nextChangedTiles[tr];
+            long[] volatiles = volatileTiles[tr];
+            Arrays.fill(changed, 0L);
+            Arrays.fill(volatiles, 0L);
+            int skipped = 0;
+            long updated = 0;
+            int fromRow = tr * tileSize;
+            int toRow = Math.min(rows, fromRow + tileSize);
+            for (int tc = 0; tc < tileCols; tc++) {
+                long bit = 1L << tc;
+                if ((active[tc >>> 6] & bit) == 0) {
+                    skipped++;
+                    continue;
+                }
+                int fromCol = tc * tileSize;
+                int toCol = Math.min(cols, fromCol + tileSize);
+                int flags = regionTask.update(fromRow, toRow, fromCol, toCol);
+                updated += (long) (toRow - fromRow) * (toCol - fromCol);
+                if ((flags & TILE_CHANGED) != 0) {
+                    changed[tc >>> 6] |= bit;
+                }
+                if ((flags & TILE_VOLATILE) != 0) {
+                    volatiles[tc >>> 6] |= bit;
+                }
+            }
+            skippedPerTileRow[tr] = skipped;
+            updatedPerTileRow[tr] = updated;
+        }
+    }
+
+    /**
+     * Swaps the current and next generation buffers.
+     * Subclasses call this at the end of {@link #applyRules()} once {@code nextState}
+     * holds the complete next generation; the old generation becomes the scratch buffer.
+     */
+    protected void swapBuffers() {
+        Grid previous = state;
+        state = nextState;
+        nextState = previous;
     }
 
     /**
@@ -30,6 +1076,199 @@ public abstract class CellularAutomaton {
      */
     public abstract void initializeRandomState();
 
+    /**
+     * Returns the number of generations computed so far.
+     *
+     * @return The current generation (0 for the initial state).
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Sets the number of generations computed so far, e.g. when resuming a run from a
+     * {@link Checkpoint}. Stochastic rules draw their random numbers from the generation,
+     * so a resumed run continues exactly as the original one.
+     *
+     * @param generation The current generation.
+     */
+    public void setGeneration(long generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * Advances the cellular automaton by one generation without printing anything.
+     * With metrics listeners, the step is measured and the listeners are notified.
+     */
+    public void step() {
+        if (metrics == null) {
+            applyRules();
+            generation++;
+        } else {
+            measureStep();
+        }
+        if (cycleHistorySize > 0) {
+            updateCycleDetection();
+        }
+    }
+
+    /**
+     * Adds a listener notified with the metrics of every step.
+     * Collecting metrics costs a few counters per region, and a pass over the cells after the
+     * first step, after external modifications, and after every step of engines that do not
+     * report their cell changes (see {@link #reportsCellChanges()}).
+     *
+     * @param listener The listener to add.
+     */
+    public void addMetricsListener(MetricsListener listener) {
+        metricsListeners.add(listener);
+        if (metrics == null) {
+            int states = getStateCount();
+            metrics = new GenerationMetrics(states <= MAX_COUNTED_STATES ? states : 0);
+            stateCounts = (states <= MAX_COUNTED_STATES) ? new AtomicLongArray(states) : null;
+            stateCountsStale = true;
+        }
+    }
+
+    /**
+     * Removes a metrics listener. Metrics are no longer collected once the last one is removed.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeMetricsListener(MetricsListener listener) {
+        metricsListeners.remove(listener);
+        if (metricsListeners.isEmpty()) {
+            metrics = null;
+            stateCounts = null;
+        }
+    }
+
+    /**
+     * Applies the rules while measuring the step, then notifies the metrics listeners.
+     * Allocations are those of the calling thread only: with a parallelism above 1, the
+     * allocations of the worker threads are not included.
+     */
+    private void measureStep() {
+        countingTransitions = stateCounts != null && !stateCountsStale && reportsCellChanges();
+        changedCells.set(0);
+        updatedCells = -1;
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        applyRules();
+        long nanos = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+        generation++;
+
+        long[] counts = metrics.stateCounts;
+        if (stateCounts != null) {
+            if (!countingTransitions) { // Recount the cells once; reported transitions keep the counts up to date.
+                countStates(counts);
+                for (int v = 0; v < counts.length; v++) {
+                    stateCounts.set(v, counts[v]);
+                }
+                stateCountsStale = !reportsCellChanges();
+            } else {
+                for (int v = 0; v < counts.length; v++) {
+                    counts[v] = stateCounts.get(v);
+                }
+            }
+        }
+        metrics.generation = generation;
+        metrics.stepNanos = nanos;
+        metrics.updatedCells = (updatedCells >= 0) ? updatedCells : (long) getRows() * getCols();
+        metrics.changedCells = reportsCellChanges() ? changedCells.get() : -1;
+        metrics.allocatedBytes = (allocatedBefore >= 0) ? allocatedAfter - allocatedBefore : -1;
+        for (MetricsListener listener : metricsListeners) {
+            listener.onMetrics(this, metrics);
+        }
+    }
+
+    /**
+     * Counts the cells in each state. Engines keeping the cells in their own representation
+     * may override this with a faster count.
+     *
+     * @param counts The array receiving the number of cells in each state, of length {@link #getStateCount()}.
+     */
+    protected void countStates(long[] counts) {
+        Arrays.fill(counts, 0L);
+        int[] cells = new int[getCols()];
+        for (int i = 0; i < getRows(); i++) {
+            getRow(i, cells);
+            for (int cell : cells) {
+                counts[cell]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread.
+     *
+     * @return The allocated bytes, or -1 if the JVM does not measure them.
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Advances the cellular automaton by a number of generations without printing anything.
+     *
+     * @param steps The number of generations to compute.
+     */
+    public void run(int steps) {
+        run(steps, null, 1);
+    }
+
+    /**
+     * Advances the cellular automaton by a number of generations, notifying an observer
+     * every {@code everyN} generations. As in {@link #evolve(int)}, the observer sees the
+     * state before each observed step: with {@code everyN == 1} it receives the initial state
+     * and the next {@code steps - 1} generations.
+     * With cycle detection enabled, the run may end early or skip whole periods of a
+     * detected cycle (see {@link #setCycleDetection(int, CycleAction)}); skipped generations
+     * are not observed, but the generation counter still advances by {@code steps}.
+     *
+     * @param steps    The number of generations to compute.
+     * @param observer The observer to notify, or {@code null} for a headless run.
+     * @param everyN   The interval, in generations, between two notifications.
+     */
+    public void run(int steps, GenerationObserver observer, int everyN) {
+        if (everyN < 1) {
+            throw new IllegalArgumentException("Observation interval must be at least 1: " + everyN);
+        }
+        for (int s = 0; s < steps; s++) {
+            if (cycleAction != CycleAction.CONTINUE && isCycleDetected()) {
+                finishCycle(steps - s);
+                return;
+            }
+            if (observer != null && s % everyN == 0) {
+                observer.onGeneration(this, generation);
+            }
+            step();
+        }
+    }
+
+    /**
+     * Ends a run once a cycle is detected: either stops, or skips the whole periods of the
+     * remaining steps and only computes the rest, which leads to the same state.
+     *
+     * @param remaining The number of steps left in the run.
+     */
+    private void finishCycle(long remaining) {
+        if (cycleAction == CycleAction.SKIP_AHEAD) {
+            long rest = remaining % cyclePeriod; // Steps left after the whole periods.
+            for (long r = 0; r < rest; r++) {
+                step();
+            }
+            generation += remaining - rest;
+        }
+    }
+
     /**
      * Abstract method to evolve the cellular automaton over a specified number of steps.
      * Subclasses must implement this method to define the specific rules
@@ -47,9 +1286,19 @@ public abstract class CellularAutomaton {
     protected abstract void applyRules();
 
     /**
-     * Abstract protected method to display the current state of the cellular automaton.
-     * Subclasses must implement this method to define how the state is visualized
-     * (e.g., console output, graphical interface, etc.).
+     * Abstract method to write the current state of the cellular automaton in text form.
+     * Subclasses must implement this method to define how the state is visualized;
+     * the output of one frame should be written to {@code out} without flushing it.
+     *
+     * @param out The writer receiving the text of the current state.
+     * @throws IOException If the writer fails.
+     */
+    public abstract void writeState(Writer out) throws IOException;
+
+    /**
+     * Displays the current state of the cellular automaton on the console.
      */
-    protected abstract void printState();
+    protected void printState() {
+        new StatePrinter(false).onGeneration(this, generation);
+    }
 }
@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Arrays;
 
 /**
@@ -13,6 +15,9 @@ public class CellularAutomaton1D extends CellularAutomaton {
      */
     private int rule;
 
+    private byte[] cells = new byte[0]; // Current states of the line, read in bulk every step.
+    private byte[] next = new byte[0];  // Next states of the line, written in bulk every step.
+
     /**
      * Constructor for the {@code CellularAutomaton1D} class.
      *
@@ -21,9 +26,9 @@ public class CellularAutomaton1D extends CellularAutomaton {
      * @param initialState The initial state of the one-dimensional cellular automaton.
      */
     public CellularAutomaton1D(int cols, int rule, int[] initialState) {
-        super(1, cols); // Initialize a 1D automaton with 1 row and specified number of columns.
+        super(1, initialState.length, 2); // A single row as long as the initial state.
         this.rule = rule;
-        this.state[0] = Arrays.copyOf(initialState, initialState.length); // Set the initial state.
+        state.setRow(0, initialState); // Set the initial state.
     }
 
     /**
@@ -32,9 +37,12 @@ public class CellularAutomaton1D extends CellularAutomaton {
      */
     @Override
     public void initializeRandomState() {
-        for (int i = 0; i < state[0].length; i++) {
-            state[0][i] = (Math.random() < 0.5) ? 0 : 1; // Randomly assign 0 or 1.
+        int[] initial = new int[state.getCols()];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = (initialRandom(0, i) < 0.5) ? 0 : 1; // Randomly assign 0 or 1.
         }
+        state.setRow(0, initial);
+        markAllTilesDirty();
     }
 
     /**
@@ -44,10 +52,7 @@ public class CellularAutomaton1D extends CellularAutomaton {
      */
     @Override
     public void evolve(int numSteps) {
-        for (int step = 0; step < numSteps; step++) {
-            System.out.println(Arrays.toString(state[0])); // Print the current state.
-            applyRules(); // Apply the evolution rules to compute the next state.
-        }
+        run(numSteps, new StatePrinter(false), 1); // Print the state before each step.
     }
 
     /**
@@ -56,55 +61,112 @@ public class CellularAutomaton1D extends CellularAutomaton {
      */
     @Override
     protected void applyRules() {
-        int[] newState = Arrays.copyOf(state[0], state[0].length); // Copy current state for updates.
-
-        for (int i = 0; i < state[0].length; i++) {
-            int[] neighborhood = getNeighborhood(i); // Get the neighborhood of the current cell.
-            newState[i] = applyRuleToCell(neighborhood); // Apply the rule to determine the next state.
+        int changed = 0; // Number of changed cells.
+        int births = 0;  // Number of cells going from 0 to 1.
+        boolean hashing = isStateHashing();
+        long hashDelta = 0; // Changes of the state hash.
+        int cols = state.getCols();
+        if (cells.length != cols) {
+            cells = new byte[cols];
+            next = new byte[cols];
         }
-
-        state[0] = newState; // Update the state with the new computed state.
+        state.getRow(0, 0, cells, 0, cols);
+        // The neighborhood slides along the line, starting with the ghost cell left of the first cell.
+        int neighborhood = ghostCell(-1) << 1 | ((cols > 0) ? cells[0] : 0);
+        for (int i = 0; i < cols; i++) {
+            int right = (i + 1 < cols) ? cells[i + 1] : ghostCell(cols);
+            neighborhood = (neighborhood << 1 & 7) | right; // The neighborhood of the current cell.
+            int cell = applyRuleToCell(neighborhood); // Apply the rule to determine the next state.
+            int current = cells[i];
+            if (cell != current) {
+                changed++;
+                births += cell;
+                if (hashing) {
+                    hashDelta ^= zobristKey(0, i, current) ^ zobristKey(0, i, cell);
+                }
+            }
+            next[i] = (byte) cell;
+        }
+        nextState.setRow(0, 0, next, 0, cols);
+        if (changed > 0) {
+            recordChanges(changed, hashDelta);
+            recordTransitions(0, 1, births);
+            recordTransitions(1, 0, changed - births);
+        }
+        swapBuffers(); // Update the state with the new computed state.
     }
 
     /**
-     * Prints the current state of the one-dimensional cellular automaton.
+     * Reports the changed cells of every step, for cycle detection and metrics.
+     *
+     * @return {@code true}.
      */
     @Override
-    protected void printState() {
-        System.out.println(Arrays.toString(state[0])); // Print the state as an array.
+    protected boolean reportsCellChanges() {
+        return true;
     }
 
     /**
-     * Applies the specified rule to a cell based on its neighborhood.
+     * Supports every boundary condition: the ghost cells at both ends of the line are read
+     * from the cells the boundary maps them to.
      *
-     * @param neighborhood The neighborhood of the cell (e.g., left, center, right states).
-     * @return The new state of the cell after applying the rule.
+     * @return {@code true}.
      */
-    private int applyRuleToCell(int[] neighborhood) {
-        // Compute the binary index based on the neighborhood's states.
-        int index = (4 * neighborhood[0]) + (2 * neighborhood[1]) + neighborhood[2];
-        // Apply the rule by shifting the rule's bits and extracting the resulting state.
-        return (rule >> index) & 1;
+    @Override
+    protected boolean supportsBoundary(BoundaryCondition boundary) {
+        return true;
     }
 
     /**
-     * Retrieves the neighborhood of a cell at a given position.
+     * Returns the rule used to determine the evolution of the cells.
      *
-     * @param index The position of the cell.
-     * @return An array representing the neighborhood of the cell (left, center, right states).
+     * @return The Wolfram rule number (0 to 255).
      */
-    private int[] getNeighborhood(int index) {
-        int[] neighborhood = new int[3];
+    public int getRule() {
+        return rule;
+    }
 
-        for (int i = 0; i < 3; i++) {
-            int neighborIndex = index - 1 + i; // Compute the neighbor's index.
-            if (neighborIndex >= 0 && neighborIndex < state[0].length) {
-                neighborhood[i] = state[0][neighborIndex]; // Valid neighbor state.
-            } else {
-                neighborhood[i] = 0; // Assume 0 for neighbors outside bounds.
+    /**
+     * Writes the current state of the one-dimensional cellular automaton
+     * in the format of {@link Arrays#toString(int[])}, e.g. {@code [0, 1, 1]}.
+     *
+     * @param out The writer receiving the text of the state.
+     * @throws IOException If the writer fails.
+     */
+    @Override
+    public void writeState(Writer out) throws IOException {
+        int[] line = new int[state.getCols()];
+        state.getRow(0, line);
+        out.write('[');
+        for (int i = 0; i < line.length; i++) {
+            if (i > 0) {
+                out.write(", ");
             }
+            out.write(Integer.toString(line[i]));
         }
+        out.write(']');
+        out.write(System.lineSeparator());
+    }
+
+    /**
+     * Applies the specified rule to a cell based on its neighborhood.
+     *
+     * @param neighborhood The neighborhood of the cell encoded as (4 * left) + (2 * center) + right.
+     * @return The new state of the cell after applying the rule.
+     */
+    private int applyRuleToCell(int neighborhood) {
+        // Apply the rule by shifting the rule's bits and extracting the resulting state.
+        return (rule >> neighborhood) & 1;
+    }
 
-        return neighborhood;
+    /**
+     * Returns the state of a ghost cell past an end of the line, as set by the boundary condition.
+     *
+     * @param index The position of the ghost cell, -1 or {@code getCols()}.
+     * @return The state the boundary maps the ghost cell to, or 0 for a dead cell.
+     */
+    private int ghostCell(int index) {
+        int col = getBoundary().map(index, state.getCols());
+        return (col >= 0) ? state.get(0, col) : 0;
     }
 }
@@ -0,0 +1,505 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Non-interactive entry point for scripted runs and benchmarks. Everything the menu hard-codes
+ * or asks for is given as {@code --key value} (or {@code --key=value}) flags, or as the same keys
+ * in a properties file passed with {@code --config}; flags override the file. For example:
+ * <pre>
+ * java CellularAutomatonLauncher --type forest-fire --rows 4096 --cols 4096 --density 0.6 \
+ *      --ignition 0.0001 --seed 42 --steps 1000 --threads 4 --record fire.carf --record-every 10
+ * </pre>
+ * When the run finishes, a one-line JSON summary with the throughput in generations and cells
+ * per second is printed to standard output. Only the steps are timed, not the set-up.
+ */
+public class CellularAutomatonLauncher {
+
+    /**
+     * Keys accepted as flags and in configuration files.
+     */
+    private static final Set<String> KEYS = new HashSet<>(Arrays.asList(
+            "config", "type", "engine", "rows", "cols", "density", "ignition", "neighborhood", "rule",
+            "seed", "steps", "threads", "tile-size", "storage", "boundary", "print-every", "record", "record-every",
+            "export", "export-every", "export-block", "checkpoint", "resume", "metrics", "workers", "exchange-every",
+            "verify", "help"));
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java CellularAutomatonLauncher [--config FILE] [--key value]...",
+            "  --type TYPE          game-of-life, life, forest-fire, majority or 1d (default game-of-life)",
+            "  --engine ENGINE      grid, bit-packed, hashlife or frontier (default grid)",
+            "  --rows N, --cols N   grid dimensions (default 256 x 256; 1d uses cols only)",
+            "  --density P          initial density of live cells or trees (default 0.5)",
+            "  --ignition P         forest fire spontaneous ignition probability (default 0)",
+            "  --neighborhood N     majority neighborhood side, odd (default 3)",
+            "  --rule RULE          life rule string (default B3/S23) or 1d Wolfram rule (default 90)",
+            "  --seed N             seed of the initial state and random draws",
+            "  --steps N            number of generations (default 100)",
+            "  --threads N          threads stepping the grid (default 1)",
+            "  --tile-size N        activity tracking tile size (default 0, disabled)",
+            "  --storage S          int, byte, packed or mapped cell storage",
+            "  --boundary B         dead, toroidal or reflective cells past the edges (default dead)",
+            "  --print-every N      print the state every N generations (default 0, never)",
+            "  --record FILE        record frames with a FrameRecorder",
+            "  --record-every N     interval between recorded frames (default 1)",
+            "  --export PATH        export images: an animated GIF if PATH ends with .gif, else a directory of PNGs",
+            "  --export-every N     interval between exported images (default 1)",
+            "  --export-block N     side of the block of cells of each pixel (default 1)",
+            "  --checkpoint FILE    save a checkpoint at the end of the run",
+            "  --resume FILE        start from a checkpoint instead of a random state",
+            "  --metrics true       add step latency percentiles to the summary",
+            "  --workers N          split the grid in strips stepped by N worker processes (default 1)",
+            "  --exchange-every N   generations between two halo exchanges of the workers (default 1)",
+            "  --verify true        also run in one process and check that the workers match it",
+            "  --config FILE        read the keys above from a properties file");
+
+    /**
+     * Main method of the launcher.
+     *
+     * @param args The flags of the run.
+     */
+    public static void main(String[] args) {
+        try {
+            Properties options = parseArguments(args);
+            if (options.containsKey("help")) {
+                System.out.println(USAGE);
+                return;
+            }
+            System.out.println(launch(options));
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("Error: " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Parses the flags, merged over the configuration file if one is given.
+     *
+     * @param args The flags.
+     * @return The options of the run.
+     * @throws IOException If the configuration file cannot be read.
+     */
+    static Properties parseArguments(String[] args) throws IOException {
+        Properties flags = new Properties();
+        for (int k = 0; k < args.length; k++) {
+            String arg = args[k];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String key = arg.substring(2);
+            String value;
+            int equals = key.indexOf('=');
+            if (equals >= 0) {
+                value = key.substring(equals + 1);
+                key = key.substring(0, equals);
+            } else if (key.equals("help")) {
+                value = "true";
+            } else if (k + 1 < args.length) {
+                value = args[++k];
+            } else {
+                throw new IllegalArgumentException("Missing value for --" + key);
+            }
+            flags.setProperty(checkKey(key), value);
+        }
+        Properties options = new Properties();
+        String config = flags.getProperty("config");
+        if (config != null) {
+            try (InputStream in = Files.newInputStream(Paths.get(config))) {
+                options.load(in);
+            }
+            for (String key : options.stringPropertyNames()) {
+                checkKey(key);
+            }
+        }
+        options.putAll(flags);
+        return options;
+    }
+
+    /**
+     * Rejects unknown keys, so that a misspelled option does not silently fall back to its default.
+     */
+    private static String checkKey(String key) {
+        if (!KEYS.contains(key)) {
+            throw new IllegalArgumentException("Unknown option: " + key);
+        }
+        return key;
+    }
+
+    /**
+     * Creates the automaton described by the options, runs it and returns the summary.
+     *
+     * @param options The options of the run.
+     * @return The JSON summary of the run.
+     * @throws IOException If a checkpoint or recording cannot be read or written.
+     */
+    static String launch(Properties options) throws IOException {
+        if (intOption(options, "workers", 1) > 1) {
+            return launchDistributed(options);
+        }
+        CellularAutomaton automaton;
+        String resume = options.getProperty("resume");
+        if (resume != null) {
+            automaton = Checkpoint.load(Paths.get(resume));
+        } else {
+            automaton = create(options);
+        }
+        configure(automaton, options);
+        try {
+            return run(automaton, options);
+        } finally {
+            automaton.release(); // Stops the pool threads and unmaps memory-mapped grids.
+        }
+    }
+
+    /**
+     * Runs a configured automaton with the observers described by the options, and returns the summary.
+     */
+    private static String run(CellularAutomaton automaton, Properties options) throws IOException {
+        AutomatonMetrics metrics = null;
+        if (Boolean.parseBoolean(options.getProperty("metrics", "false"))) {
+            metrics = new AutomatonMetrics();
+            automaton.addMetricsListener(metrics);
+        }
+
+        int steps = intOption(options, "steps", 100);
+        int printEvery = intOption(options, "print-every", 0);
+        int recordEvery = intOption(options, "record-every", 1);
+        int exportEvery = intOption(options, "export-every", 1);
+        String record = options.getProperty("record");
+        String export = options.getProperty("export");
+        FrameRecorder recorder = (record != null) ? new FrameRecorder(Paths.get(record)) : null;
+        ImageExporter exporter = null;
+        if (export != null) {
+            ImageExporter.Format format = export.toLowerCase(Locale.ROOT).endsWith(".gif")
+                    ? ImageExporter.Format.GIF : ImageExporter.Format.PNG;
+            exporter = new ImageExporter(Paths.get(export), format, intOption(options, "export-block", 1));
+        }
+        StatePrinter printer = (printEvery > 0) ? new StatePrinter(true) : null;
+        List<GenerationObserver> observers = new ArrayList<>();
+        List<Integer> intervals = new ArrayList<>();
+        if (printer != null) {
+            observers.add(printer);
+            intervals.add(printEvery);
+        }
+        if (recorder != null) {
+            observers.add(recorder);
+            intervals.add(recordEvery);
+        }
+        if (exporter != null) {
+            observers.add(exporter);
+            intervals.add(exportEvery);
+        }
+        GenerationObserver observer = null;
+        int everyN = 1;
+        if (observers.size() == 1) {
+            observer = observers.get(0);
+            everyN = intervals.get(0);
+        } else if (observers.size() > 1) {
+            long start = automaton.getGeneration();
+            observer = (ca, generation) -> {
+                for (int k = 0; k < observers.size(); k++) {
+                    if ((generation - start) % intervals.get(k) == 0) {
+                        observers.get(k).onGeneration(ca, generation);
+                    }
+                }
+            };
+        }
+
+        long startGeneration = automaton.getGeneration();
+        long start = System.nanoTime();
+        try {
+            automaton.run(steps, observer, everyN);
+        } finally {
+            try {
+                if (recorder != null) {
+                    recorder.close();
+                }
+            } finally {
+                if (exporter != null) {
+                    exporter.close();
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        String checkpoint = options.getProperty("checkpoint");
+        if (checkpoint != null) {
+            Checkpoint.save(automaton, Paths.get(checkpoint));
+        }
+        return summary(automaton, automaton.getGeneration() - startGeneration, seconds, metrics, recorder, exporter);
+    }
+
+    /**
+     * Runs the automaton described by the options as strips stepped by worker processes,
+     * and returns the summary.
+     */
+    private static String launchDistributed(Properties options) throws IOException {
+        for (String key : new String[]{"resume", "checkpoint", "record", "export", "print-every", "metrics"}) {
+            if (options.containsKey(key)) {
+                throw new IllegalArgumentException("--" + key + " is not supported with --workers");
+            }
+        }
+        int workers = intOption(options, "workers", 1);
+        int steps = intOption(options, "steps", 100);
+        Properties automatonOptions = new Properties();
+        automatonOptions.putAll(options);
+        if (!automatonOptions.containsKey("seed")) { // The single-process check must draw the same grid.
+            automatonOptions.setProperty("seed", Long.toString(ThreadLocalRandom.current().nextLong()));
+        }
+        configure(create(automatonOptions, 0, 1), automatonOptions); // Reject invalid options before starting the workers.
+        DistributedRun run = new DistributedRun(automatonOptions, workers);
+        run.setExchangeInterval(intOption(options, "exchange-every", 1));
+        DistributedRun.Result result = run.run(steps);
+
+        long cells = (long) intOption(options, "rows", 256) * intOption(options, "cols", 256);
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"type\":\"").append(options.getProperty("type", "game-of-life")).append('"');
+        json.append(",\"rows\":").append(intOption(options, "rows", 256));
+        json.append(",\"cols\":").append(intOption(options, "cols", 256));
+        json.append(",\"workers\":").append(workers);
+        json.append(",\"exchangeEvery\":").append(intOption(options, "exchange-every", 1));
+        json.append(",\"generations\":").append(result.getGeneration());
+        json.append(",\"seconds\":").append(String.format(Locale.ROOT, "%.6f", result.getSeconds()));
+        json.append(",\"generationsPerSecond\":")
+                .append(String.format(Locale.ROOT, "%.3f", result.getGeneration() / result.getSeconds()));
+        json.append(",\"cellsPerSecond\":")
+                .append(String.format(Locale.ROOT, "%.1f", result.getGeneration() * (double) cells / result.getSeconds()));
+        json.append(",\"exchangedBytes\":").append(result.getExchangedBytes());
+        json.append(",\"stateHash\":\"").append(Long.toHexString(result.getStateHash())).append('"');
+        if (Boolean.parseBoolean(options.getProperty("verify", "false"))) {
+            CellularAutomaton automaton = create(automatonOptions);
+            configure(automaton, automatonOptions);
+            automaton.run(steps, null, 1);
+            json.append(",\"verified\":").append(automaton.getStateHash() == result.getStateHash());
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Applies the storage, boundary, threads and activity tracking options to an automaton.
+     *
+     * @param automaton The automaton.
+     * @param options   The options of the run.
+     */
+    static void configure(CellularAutomaton automaton, Properties options) {
+        GridStorage storage = storageOption(options);
+        if (storage != null && automaton.getGridStorage() != storage) {
+            automaton.setGridStorage(storage);
+        }
+        String boundary = options.getProperty("boundary");
+        if (boundary != null) {
+            automaton.setBoundary(BoundaryCondition.valueOf(constantName(boundary)));
+        }
+        automaton.setParallelism(intOption(options, "threads", 1));
+        int tileSize = intOption(options, "tile-size", 0);
+        if (tileSize > 0) {
+            automaton.setActivityTracking(tileSize);
+        }
+    }
+
+    /**
+     * Creates and initializes the automaton described by the options.
+     */
+    private static CellularAutomaton create(Properties options) {
+        return create(options, 0, intOption(options, "rows", 256));
+    }
+
+    /**
+     * Creates and initializes the rows {@code firstRow} to {@code firstRow + rows - 1} of the automaton
+     * described by the options, as a grid of their own: the random draws are those of the whole grid,
+     * so the strip starts in the same state as these rows of the whole automaton.
+     *
+     * @param options  The options of the run.
+     * @param firstRow The row of the whole grid that becomes row 0 of the strip.
+     * @param rows     The number of rows of the strip.
+     * @return A new automaton holding the strip.
+     */
+    static CellularAutomaton create(Properties options, int firstRow, int rows) {
+        String type = options.getProperty("type", "game-of-life");
+        String engine = constantName(options.getProperty("engine", "grid"));
+        int cols = intOption(options, "cols", 256);
+        GridStorage storage = storageOption(options);
+        boolean fill = options.containsKey("density");
+        double density = doubleOption(options, "density", 0.5);
+        CellularAutomaton automaton;
+        switch (type) {
+            case "game-of-life":
+                GameOfLife.Engine golEngine = GameOfLife.Engine.valueOf(engine);
+                automaton = (golEngine == GameOfLife.Engine.GRID && storage != null)
+                        ? new GameOfLife(rows, cols, storage) // Large mapped grids never exist on the heap.
+                        : GameOfLife.create(rows, cols, golEngine);
+                break;
+            case "life":
+                LifeRule lifeRule = LifeRule.parse(options.getProperty("rule", "B3/S23"));
+                GameOfLife.Engine lifeEngine = GameOfLife.Engine.valueOf(engine);
+                automaton = (lifeEngine == GameOfLife.Engine.GRID)
+                        ? new LifeLikeAutomaton(rows, cols, lifeRule, (storage != null) ? storage : GridStorage.BYTE)
+                        : GameOfLife.create(rows, cols, lifeEngine, lifeRule);
+                break;
+            case "forest-fire":
+                automaton = ForestFire.create(rows, cols, density, doubleOption(options, "ignition", 0.0),
+                        ForestFire.Engine.valueOf(engine), (storage != null) ? storage : GridStorage.BYTE);
+                fill = false; // The forest draws its trees itself.
+                break;
+            case "majority":
+                requireGridEngine(type, engine);
+                automaton = new MajorityCellularAutomaton(rows, cols, intOption(options, "neighborhood", 3));
+                break;
+            case "1d":
+                int rule = intOption(options, "rule", 90);
+                if (engine.equals("BIT_PACKED")) {
+                    automaton = new BitPackedCellularAutomaton1D(cols, rule, new int[0]);
+                } else {
+                    requireGridEngine(type, engine);
+                    automaton = new CellularAutomaton1D(cols, rule, new int[cols]);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown automaton type: " + type);
+        }
+        String seed = options.getProperty("seed");
+        if (seed != null) {
+            try {
+                automaton.setSeed(Long.parseLong(seed.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid integer for seed: " + seed);
+            }
+        }
+        if (firstRow != 0) {
+            automaton.setRandomSource(new ShiftedRandomSource(automaton.getRandomSource(), firstRow));
+        }
+        if (fill) {
+            fill(automaton, density);
+        } else {
+            automaton.initializeRandomState();
+        }
+        return automaton;
+    }
+
+    /**
+     * Rejects the engines that only exist for some automata.
+     */
+    private static void requireGridEngine(String type, String engine) {
+        if (!engine.equals("GRID")) {
+            throw new IllegalArgumentException("Engine " + engine.toLowerCase(Locale.ROOT) + " is not available for " + type);
+        }
+    }
+
+    /**
+     * Sets every cell to 1 with the given probability, drawn from the automaton's random source.
+     */
+    private static void fill(CellularAutomaton automaton, double density) {
+        RandomSource random = automaton.getRandomSource();
+        int[] cells = new int[automaton.getCols()];
+        for (int i = 0; i < automaton.getRows(); i++) {
+            for (int j = 0; j < cells.length; j++) {
+                cells[j] = (random.nextDouble(RandomSource.INITIALIZATION, i, j) < density) ? 1 : 0;
+            }
+            automaton.setRow(i, cells);
+        }
+    }
+
+    /**
+     * Formats the summary of a run as one line of JSON.
+     */
+    private static String summary(CellularAutomaton automaton, long generations, double seconds,
+                                  AutomatonMetrics metrics, FrameRecorder recorder, ImageExporter exporter) {
+        long cells = (long) automaton.getRows() * automaton.getCols();
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"type\":\"").append(automaton.getClass().getSimpleName()).append('"');
+        json.append(",\"rows\":").append(automaton.getRows());
+        json.append(",\"cols\":").append(automaton.getCols());
+        json.append(",\"threads\":").append(automaton.getParallelism());
+        json.append(",\"boundary\":\"").append(automaton.getBoundary().name().toLowerCase(Locale.ROOT)).append('"');
+        if (automaton instanceof LifeLikeAutomaton
+                || (automaton instanceof ForestFire && !(automaton instanceof FrontierForestFire))) {
+            json.append(",\"kernel\":\"").append(automaton.getRowKernel().getClass().getSimpleName()).append('"');
+        }
+        json.append(",\"generations\":").append(generations);
+        json.append(",\"generation\":").append(automaton.getGeneration());
+        json.append(",\"seconds\":").append(String.format(Locale.ROOT, "%.6f", seconds));
+        json.append(",\"generationsPerSecond\":").append(String.format(Locale.ROOT, "%.3f", generations / seconds));
+        json.append(",\"cellsPerSecond\":").append(String.format(Locale.ROOT, "%.1f", generations * (double) cells / seconds));
+        if (metrics != null) {
+            json.append(",\"p50StepNanos\":").append(metrics.getP50StepNanos());
+            json.append(",\"p99StepNanos\":").append(metrics.getP99StepNanos());
+            json.append(",\"maxStepNanos\":").append(metrics.getMaxStepNanos());
+        }
+        if (recorder != null) {
+            json.append(",\"recordedFrames\":").append(recorder.getRecordedFrames());
+            json.append(",\"droppedFrames\":").append(recorder.getDroppedFrames());
+        }
+        if (exporter != null) {
+            json.append(",\"exportedImages\":").append(exporter.getExportedFrames());
+            json.append(",\"droppedImages\":").append(exporter.getDroppedFrames());
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Converts an option value such as {@code bit-packed} to an enum constant name such as {@code BIT_PACKED}.
+     */
+    private static String constantName(String value) {
+        return value.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+    }
+
+    private static GridStorage storageOption(Properties options) {
+        String value = options.getProperty("storage");
+        return (value != null) ? GridStorage.valueOf(constantName(value)) : null;
+    }
+
+    private static int intOption(Properties options, String key, int defaultValue) {
+        String value = options.getProperty(key);
+        try {
+            return (value != null) ? Integer.parseInt(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid integer for " + key + ": " + value);
+        }
+    }
+
+    private static double doubleOption(Properties options, String key, double defaultValue) {
+        String value = options.getProperty(key);
+        try {
+            return (value != null) ? Double.parseDouble(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + key + ": " + value);
+        }
+    }
+
+    /**
+     * Random source of a strip of a larger grid: row {@code i} of the strip draws the numbers of
+     * row {@code firstRow + i} of the whole grid.
+     */
+    private static final class ShiftedRandomSource implements RandomSource {
+        private final RandomSource source; // Random source of the whole grid.
+        private final int firstRow;        // Row of the whole grid at row 0 of the strip.
+
+        ShiftedRandomSource(RandomSource source, int firstRow) {
+            this.source = source;
+            this.firstRow = firstRow;
+        }
+
+        @Override
+        public double nextDouble(long generation, int row, int col) {
+            return source.nextDouble(generation, firstRow + row, col);
+        }
+
+        @Override
+        public long getSeed() {
+            return source.getSeed();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Counter-based random source: each number is a hash of (seed, generation, row, col)
+ * computed with two rounds of the SplitMix64 finalizer. It holds no mutable state, so
+ * it can be shared by any number of threads without synchronization.
+ */
+public class CounterRandomSource implements RandomSource {
+
+    private final long seed; // Seed of all the draws.
+
+    /**
+     * Constructor for the {@code CounterRandomSource} class.
+     *
+     * @param seed The seed of all the draws.
+     */
+    public CounterRandomSource(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns a uniform random number in [0, 1) for a cell at a given generation.
+     *
+     * @param generation The generation of the draw.
+     * @param row        The row index of the cell.
+     * @param col        The column index of the cell.
+     * @return A random number in [0, 1).
+     */
+    @Override
+    public double nextDouble(long generation, int row, int col) {
+        long z = mix(seed + generation * 0x9E3779B97F4A7C15L);
+        z = mix(z ^ (((long) row << 32) | (col & 0xFFFFFFFFL)));
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Returns the seed of this source.
+     *
+     * @return The seed.
+     */
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * SplitMix64 finalizer, scrambling all bits of its argument.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
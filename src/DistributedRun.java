@@ -0,0 +1,372 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an automaton too large for one process as horizontal strips, each owned by a
+ * {@link HaloExchangeWorker} process. The workers are started on the loopback interface and
+ * connect back to this coordinator, which assigns their strips and collects their results.
+ * <p>
+ * Every strip is stored with {@code halo} extra rows of each neighboring strip above and below.
+ * A rule of radius {@code r} corrupts at most {@code r} rows per generation from the edges of a
+ * strip, so halos of {@code k * r} rows let the workers step {@code k} generations between two
+ * exchanges with their neighbors, which are sent directly over a socket between them. The owned
+ * rows stay exact, and the strips together always hold the generation of the single-process run.
+ * <p>
+ * The automaton is described by the options of {@link CellularAutomatonLauncher}; its random draws
+ * are addressed by the rows of the whole grid, so every worker initializes its own strip and the
+ * whole grid never exists in one process. The result holds the state counts and the Zobrist hash
+ * of the final generation, equal to {@link CellularAutomaton#getStateHash()} of the same automaton
+ * run in a single process. Dead and reflective boundaries are supported: the edges of the grid
+ * are edges of the first and last strips, and the halos absorb what the strips see past their
+ * inner edges.
+ */
+public class DistributedRun {
+
+    static final int MAGIC = 0x43414857; // "CAHW", first word of every assignment.
+    static final int VERSION = 1;        // Version of the protocol.
+    static final int READY = 1;          // Sent by a worker once connected to its neighbors.
+    static final int GO = 2;             // Sent by the coordinator to start the steps.
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 60_000; // Longest wait for a worker to start and connect.
+
+    private final Properties options;    // Options describing the automaton, with a fixed seed.
+    private final int workers;           // Number of worker processes.
+    private final int rows;              // Number of rows of the whole grid.
+    private final int radius;            // Number of rows a generation reads above and below a cell.
+    private int exchangeInterval = 1;    // Generations stepped between two halo exchanges.
+    private List<String> jvmOptions = new ArrayList<>(); // Options of the worker JVMs, e.g. -Xmx.
+
+    /**
+     * Constructor for the {@code DistributedRun} class.
+     *
+     * @param options The options of the automaton, as accepted by {@link CellularAutomatonLauncher}:
+     *                type ({@code game-of-life}, {@code life}, {@code forest-fire} or {@code majority}),
+     *                engine, rows, cols, density, ignition, neighborhood, rule, seed, threads,
+     *                tile-size, storage and boundary. A random seed is chosen if none is given.
+     *                A toroidal boundary is rejected with several workers: the first and last
+     *                strips do not exchange halos.
+     * @param workers The number of worker processes, each owning a strip of rows.
+     */
+    public DistributedRun(Properties options, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be at least 1: " + workers);
+        }
+        this.options = new Properties();
+        this.options.putAll(options);
+        if (!this.options.containsKey("seed")) { // Every worker must draw the same initial grid.
+            this.options.setProperty("seed", Long.toString(ThreadLocalRandom.current().nextLong()));
+        }
+        this.workers = workers;
+        this.rows = intOption("rows", 256);
+        this.radius = radiusOf(this.options);
+        String boundary = this.options.getProperty("boundary", "dead");
+        if (workers > 1 && boundary.trim().equalsIgnoreCase(BoundaryCondition.TOROIDAL.name())) {
+            throw new IllegalArgumentException("A toroidal boundary cannot be split between workers");
+        }
+        if (rows < workers) {
+            throw new IllegalArgumentException("Cannot split " + rows + " rows between " + workers + " workers");
+        }
+    }
+
+    /**
+     * Returns the number of rows read above and below a cell by one generation of the automaton.
+     */
+    private static int radiusOf(Properties options) {
+        String type = options.getProperty("type", "game-of-life");
+        String engine = options.getProperty("engine", "grid").trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        switch (type) {
+            case "game-of-life":
+            case "life":
+                if (engine.equals("HASHLIFE")) {
+                    throw new IllegalArgumentException("The hashlife engine runs on an unbounded plane and cannot be split");
+                }
+                return 1;
+            case "forest-fire":
+                if (!engine.equals("GRID")) {
+                    throw new IllegalArgumentException("Only the grid forest fire draws its random numbers per cell");
+                }
+                return 1;
+            case "majority":
+                String neighborhood = options.getProperty("neighborhood", "3");
+                try {
+                    return Integer.parseInt(neighborhood.trim()) / 2;
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid integer for neighborhood: " + neighborhood);
+                }
+            default:
+                throw new IllegalArgumentException("Automaton type " + type + " cannot be split between workers");
+        }
+    }
+
+    private int intOption(String key, int defaultValue) {
+        String value = options.getProperty(key);
+        try {
+            return (value != null) ? Integer.parseInt(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid integer for " + key + ": " + value);
+        }
+    }
+
+    /**
+     * Sets the number of generations the workers step between two halo exchanges.
+     * Larger intervals send fewer, larger messages, but every strip then stores and
+     * recomputes {@code interval * radius} extra rows on each side.
+     *
+     * @param interval The number of generations, 1 by default.
+     */
+    public void setExchangeInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Exchange interval must be at least 1: " + interval);
+        }
+        this.exchangeInterval = interval;
+    }
+
+    /**
+     * Sets the options of the worker JVMs, e.g. {@code -Xmx8g}.
+     *
+     * @param options The JVM options.
+     */
+    public void setWorkerJvmOptions(String... options) {
+        this.jvmOptions = new ArrayList<>(Arrays.asList(options));
+    }
+
+    /**
+     * Returns the first row owned by a worker.
+     */
+    private int firstRow(int worker) {
+        return (int) ((long) rows * worker / workers);
+    }
+
+    /**
+     * Starts the workers, runs the automaton for a number of steps and collects the results.
+     *
+     * @param steps The number of generations.
+     * @return The final state counts and hash, and the timings of the run.
+     * @throws IOException If a worker cannot be started or fails.
+     */
+    public Result run(int steps) throws IOException {
+        int halo = exchangeInterval * radius;
+        if (workers > 1 && rows / workers < halo) {
+            throw new IllegalArgumentException("Strips of " + rows / workers + " rows are thinner than the halos of "
+                    + halo + " rows; use fewer workers or a shorter exchange interval");
+        }
+        StringWriter text = new StringWriter();
+        options.store(text, null);
+
+        List<Process> processes = new ArrayList<>();
+        List<Socket> sockets = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            for (int k = 0; k < workers; k++) {
+                processes.add(new ProcessBuilder(workerCommand(server.getLocalPort())).inheritIO().start());
+            }
+            DataInputStream[] in = new DataInputStream[workers];
+            DataOutputStream[] out = new DataOutputStream[workers];
+            for (int k = 0; k < workers; k++) { // Workers are numbered in the order they connect.
+                Socket socket = server.accept();
+                sockets.add(socket);
+                in[k] = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out[k] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                out[k].writeInt(MAGIC);
+                out[k].writeInt(VERSION);
+                out[k].writeInt(k);
+                out[k].writeInt(workers);
+                out[k].writeInt(firstRow(k));
+                out[k].writeInt(firstRow(k + 1));
+                out[k].writeInt((workers > 1) ? halo : 0);
+                out[k].writeInt(exchangeInterval);
+                out[k].writeInt(steps);
+                out[k].writeUTF(text.toString());
+                out[k].flush();
+            }
+
+            String[] hosts = new String[workers]; // Address where each worker accepts its lower neighbor.
+            int[] ports = new int[workers];
+            for (int k = 0; k < workers; k++) {
+                hosts[k] = readFrom(k, in[k]).readUTF();
+                ports[k] = in[k].readInt();
+            }
+            for (int k = 1; k < workers; k++) { // Each worker connects to the worker above it.
+                out[k].writeUTF(hosts[k - 1]);
+                out[k].writeInt(ports[k - 1]);
+                out[k].flush();
+            }
+            for (int k = 0; k < workers; k++) {
+                if (readFrom(k, in[k]).readInt() != READY) {
+                    throw new IOException("Worker " + k + " did not get ready");
+                }
+            }
+
+            long start = System.nanoTime();
+            for (int k = 0; k < workers; k++) {
+                out[k].writeInt(GO);
+                out[k].flush();
+            }
+            Result result = new Result(workers);
+            for (int k = 0; k < workers; k++) {
+                result.add(k, readFrom(k, in[k]));
+            }
+            result.seconds = (System.nanoTime() - start) / 1e9;
+            return result;
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            for (Process process : processes) {
+                try {
+                    if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                        process.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    process.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the stream of a worker, after checking that the worker is still connected.
+     */
+    private static DataInputStream readFrom(int worker, DataInputStream in) throws IOException {
+        in.mark(1);
+        if (in.read() < 0) {
+            throw new EOFException("Worker " + worker + " disconnected; see its error output");
+        }
+        in.reset();
+        return in;
+    }
+
+    /**
+     * Returns the command starting a worker connecting to this coordinator.
+     */
+    private List<String> workerCommand(int port) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(HaloExchangeWorker.class.getName());
+        command.add(InetAddress.getLoopbackAddress().getHostAddress());
+        command.add(Integer.toString(port));
+        return command;
+    }
+
+    /**
+     * Final state and timings of a distributed run.
+     */
+    public static final class Result {
+        private long generation;        // Generation reached by the workers.
+        private long stateHash;         // XOR of the hashes of the strips.
+        private long[] stateCounts = new long[0]; // Number of cells in each state.
+        private final long[] computeNanos;  // Per worker, time spent stepping.
+        private final long[] exchangeNanos; // Per worker, time spent exchanging halos.
+        private long exchangedBytes;    // Bytes of halo rows sent by all the workers.
+        private double seconds;         // Wall-clock time of the steps.
+
+        Result(int workers) {
+            computeNanos = new long[workers];
+            exchangeNanos = new long[workers];
+        }
+
+        /**
+         * Reads the result of a worker.
+         */
+        void add(int worker, DataInputStream in) throws IOException {
+            generation = in.readLong();
+            stateHash ^= in.readLong();
+            int states = in.readInt();
+            if (stateCounts.length < states) {
+                stateCounts = Arrays.copyOf(stateCounts, states);
+            }
+            for (int v = 0; v < states; v++) {
+                stateCounts[v] += in.readLong();
+            }
+            computeNanos[worker] = in.readLong();
+            exchangeNanos[worker] = in.readLong();
+            exchangedBytes += in.readLong();
+        }
+
+        /**
+         * Returns the generation reached.
+         *
+         * @return The number of generations computed.
+         */
+        public long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * Returns the Zobrist hash of the final generation, as {@link CellularAutomaton#getStateHash()}.
+         *
+         * @return The hash of the whole grid.
+         */
+        public long getStateHash() {
+            return stateHash;
+        }
+
+        /**
+         * Returns the number of cells in a state in the final generation.
+         *
+         * @param value The state.
+         * @return The number of cells of the whole grid in that state.
+         */
+        public long getCellsInState(int value) {
+            return (value < stateCounts.length) ? stateCounts[value] : 0;
+        }
+
+        /**
+         * Returns the time spent stepping by a worker.
+         *
+         * @param worker The index of the worker, from the top strip.
+         * @return The time in nanoseconds.
+         */
+        public long getComputeNanos(int worker) {
+            return computeNanos[worker];
+        }
+
+        /**
+         * Returns the time spent exchanging halos by a worker, including waiting for its neighbors.
+         *
+         * @param worker The index of the worker, from the top strip.
+         * @return The time in nanoseconds.
+         */
+        public long getExchangeNanos(int worker) {
+            return exchangeNanos[worker];
+        }
+
+        /**
+         * Returns the number of bytes of halo rows sent by all the workers.
+         *
+         * @return The number of bytes.
+         */
+        public long getExchangedBytes() {
+            return exchangedBytes;
+        }
+
+        /**
+         * Returns the wall-clock time of the steps, from the start signal to the last result.
+         *
+         * @return The time in seconds.
+         */
+        public double getSeconds() {
+            return seconds;
+        }
+    }
+}
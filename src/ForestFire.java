@@ -1,14 +1,51 @@
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * Class representing a cellular automaton simulating a forest fire.
  */
 public class ForestFire extends CellularAutomaton {
-    private static final int EMPTY = 0;     // State representing an empty cell.
-    private static final int TREE = 1;     // State representing a tree.
-    private static final int BURNING = 2;  // State representing a burning tree.
+    public static final int EMPTY = 0;     // State representing an empty cell.
+    public static final int TREE = 1;      // State representing a tree.
+    public static final int BURNING = 2;   // State representing a burning tree.
 
     private double treeDensity;            // Probability of a cell being initialized as a tree.
     private double ignitionProbability;    // Probability of a tree catching fire spontaneously.
 
+    private final RegionTask regionUpdater = this::updateRegion; // Region task reused every generation.
+    private final ThreadLocal<PaddedRows> paddedRows = ThreadLocal.withInitial(() -> new PaddedRows(2)); // Per thread, rows of a region and transitions.
+
+    /**
+     * The available implementations of the forest fire rules.
+     */
+    public enum Engine {
+        GRID,    // Every cell recomputed each generation, in parallel row bands.
+        FRONTIER // Only the burning front visited, see {@link FrontierForestFire}.
+    }
+
+    /**
+     * Creates a forest fire backed by the requested engine. Both engines follow the same
+     * distribution of generations, but draw different random numbers for the same seed.
+     *
+     * @param rows                Number of rows in the forest grid.
+     * @param cols                Number of columns in the forest grid.
+     * @param treeDensity         Density of trees in the forest (0 to 1).
+     * @param ignitionProbability Probability of a tree spontaneously catching fire (0 to 1).
+     * @param engine              The implementation to use.
+     * @param storage             The representation of the cells.
+     * @return A new forest fire.
+     */
+    public static ForestFire create(int rows, int cols, double treeDensity, double ignitionProbability,
+                                    Engine engine, GridStorage storage) {
+        switch (engine) {
+            case FRONTIER:
+                return new FrontierForestFire(rows, cols, treeDensity, ignitionProbability, storage);
+            case GRID:
+            default:
+                return new ForestFire(rows, cols, treeDensity, ignitionProbability, storage);
+        }
+    }
+
     /**
      * Constructor for the {@code ForestFire} class.
      *
@@ -18,22 +55,56 @@ public class ForestFire extends CellularAutomaton {
      * @param ignitionProbability Probability of a tree spontaneously catching fire (0 to 1).
      */
     public ForestFire(int rows, int cols, double treeDensity, double ignitionProbability) {
-        super(rows, cols);
+        this(rows, cols, treeDensity, ignitionProbability, GridStorage.BYTE);
+    }
+
+    /**
+     * Constructor for the {@code ForestFire} class with the cells in a given storage,
+     * e.g. {@link GridStorage#MAPPED} for forests larger than the heap.
+     *
+     * @param rows                Number of rows in the forest grid.
+     * @param cols                Number of columns in the forest grid.
+     * @param treeDensity         Density of trees in the forest (0 to 1).
+     * @param ignitionProbability Probability of a tree spontaneously catching fire (0 to 1).
+     * @param storage             The representation of the cells.
+     */
+    public ForestFire(int rows, int cols, double treeDensity, double ignitionProbability, GridStorage storage) {
+        super(rows, cols, 3, storage); // EMPTY, TREE and BURNING.
         this.treeDensity = treeDensity;
         this.ignitionProbability = ignitionProbability;
     }
 
+    /**
+     * Constructor for the {@code ForestFire} class with a fixed seed.
+     * Two simulations with the same parameters and seed produce the same forests,
+     * whatever parallelism level they use.
+     *
+     * @param rows                Number of rows in the forest grid.
+     * @param cols                Number of columns in the forest grid.
+     * @param treeDensity         Density of trees in the forest (0 to 1).
+     * @param ignitionProbability Probability of a tree spontaneously catching fire (0 to 1).
+     * @param seed                Seed of the random draws.
+     */
+    public ForestFire(int rows, int cols, double treeDensity, double ignitionProbability, long seed) {
+        this(rows, cols, treeDensity, ignitionProbability);
+        setSeed(seed);
+    }
+
     /**
      * Randomly initializes the forest grid based on the specified tree density.
      * Each cell has a probability of being a tree determined by {@code treeDensity}.
      */
     @Override
     public void initializeRandomState() {
-        for (int i = 0; i < state.length; i++) {
-            for (int j = 0; j < state[0].length; j++) {
-                state[i][j] = (Math.random() < treeDensity) ? TREE : EMPTY;
+        int[] cells = new int[state.getCols()]; // States of the row being initialized.
+        for (int i = 0; i < state.getRows(); i++) {
+            for (int j = 0; j < cells.length; j++) {
+                cells[j] = (initialRandom(i, j) < treeDensity) ? TREE : EMPTY;
             }
+            state.setRow(i, cells);
         }
+        generation = 0;
+        markAllTilesDirty();
     }
 
     /**
@@ -43,11 +114,7 @@ public class ForestFire extends CellularAutomaton {
      */
     @Override
     public void evolve(int numSteps) {
-        for (int step = 0; step < numSteps; step++) {
-            System.out.println("Step " + (step + 1)); // Display the current step number.
-            printState(); // Print the current state of the forest.
-            applyRules(); // Apply the forest fire rules to compute the next state.
-        }
+        run(numSteps, new StatePrinter(true), 1); // Print the step number and state before each step.
     }
 
     /**
@@ -55,68 +122,167 @@ public class ForestFire extends CellularAutomaton {
      */
     @Override
     protected void applyRules() {
-        int[][] newForest = new int[state.length][state[0].length]; // Temporary grid for the next state.
-
-        for (int i = 0; i < state.length; i++) {
-            for (int j = 0; j < state[0].length; j++) {
-                if (state[i][j] == BURNING) {
-                    newForest[i][j] = EMPTY; // A burning tree becomes empty after burning out.
-                } else if (state[i][j] == TREE) {
-                    if (hasBurningNeighbor(i, j) || Math.random() < ignitionProbability) {
-                        newForest[i][j] = BURNING; // A tree catches fire if a neighbor is burning or spontaneously ignites.
-                    } else {
-                        newForest[i][j] = TREE; // A tree remains unchanged.
+        stepRegions(regionUpdater, 1); // Compute the next state into the scratch buffer.
+        swapBuffers(); // Update the forest state with the new computed state.
+    }
+
+    /**
+     * Computes the next state of a region into {@code nextState}.
+     * The row kernel burns out the fires and spreads them to the neighboring trees;
+     * the trees it leaves unchanged then ignite spontaneously with the ignition probability.
+     *
+     * @param fromRow The first row of the region (inclusive).
+     * @param toRow   The last row of the region (exclusive).
+     * @param fromCol The first column of the region (inclusive).
+     * @param toCol   The last column of the region (exclusive).
+     * @return {@link #TILE_CHANGED} if a cell of the region changed, combined with
+     *         {@link #TILE_VOLATILE} if it holds trees that may ignite spontaneously.
+     */
+    private int updateRegion(int fromRow, int toRow, int fromCol, int toCol) {
+        int length = toCol - fromCol;
+        PaddedRows rows = paddedRows.get();
+        rows.reset(length);
+        int[] transitions = rows.counts; // Burning trees becoming empty, and trees catching fire.
+        RowKernel kernel = getRowKernel();
+        int changed = 0;
+        boolean trees = false;
+        boolean hashing = isStateHashing();
+        long hashDelta = 0; // Changes of the state hash, reported once for the region.
+        BoundaryCondition boundary = getBoundary(); // Fills the ghost cells around the region.
+        PaddedRows.load(state, boundary, fromRow - 1, fromCol, toCol, rows.row);
+        PaddedRows.load(state, boundary, fromRow, fromCol, toCol, rows.below);
+        for (int i = fromRow; i < toRow; i++) {
+            rows.slide();
+            PaddedRows.load(state, boundary, i + 1, fromCol, toCol, rows.below);
+            byte[] next = rows.next;
+            int rowChanges = kernel.stepForestFire(rows.above, rows.row, rows.below, next, length, transitions);
+            if (ignitionProbability > 0) {
+                for (int k = 0; k < length; k++) {
+                    if (next[k] == TREE) {
+                        if (randomSource.nextDouble(generation, i, fromCol + k) < ignitionProbability) {
+                            next[k] = BURNING; // A tree spontaneously ignites.
+                            transitions[1]++;
+                            rowChanges++;
+                        } else {
+                            trees = true;
+                        }
                     }
-                } else {
-                    newForest[i][j] = EMPTY; // An empty cell remains unchanged.
                 }
             }
+            if (rowChanges > 0) {
+                changed += rowChanges;
+                if (hashing) {
+                    hashDelta ^= rows.hashDelta(i, fromCol, length);
+                }
+            }
+            nextState.setRow(i, fromCol, next, 0, length);
         }
+        int flags = 0;
+        if (changed > 0) {
+            recordChanges(changed, hashDelta);
+            recordTransitions(BURNING, EMPTY, transitions[0]);
+            recordTransitions(TREE, BURNING, transitions[1]);
+            flags = TILE_CHANGED;
+        }
+        return (trees && ignitionProbability > 0) ? flags | TILE_VOLATILE : flags;
+    }
 
-        state = newForest; // Update the forest state with the new computed state.
+    /**
+     * Reports the changed cells of every step, for cycle detection and metrics.
+     *
+     * @return {@code true}.
+     */
+    @Override
+    protected boolean reportsCellChanges() {
+        return true;
     }
 
     /**
-     * Checks if a cell has any burning neighbors.
+     * Supports every boundary condition: the ghost cells around each region are loaded from the
+     * cells the boundary maps them to.
      *
-     * @param row The row index of the cell.
-     * @param col The column index of the cell.
-     * @return {@code true} if a burning neighbor is found; otherwise, {@code false}.
-     */
-    private boolean hasBurningNeighbor(int row, int col) {
-        for (int i = row - 1; i <= row + 1; i++) {
-            for (int j = col - 1; j <= col + 1; j++) {
-                if (i >= 0 && i < state.length && j >= 0 && j < state[0].length && !(i == row && j == col)) {
-                    if (state[i][j] == BURNING) {
-                        return true; // Return true if a burning neighbor is found.
-                    }
-                }
-            }
+     * @return {@code true}.
+     */
+    @Override
+    protected boolean supportsBoundary(BoundaryCondition boundary) {
+        return true;
+    }
+
+    /**
+     * Returns whether the forest evolves deterministically, which is the case
+     * only when trees never ignite spontaneously.
+     *
+     * @return {@code true} if the ignition probability is 0.
+     */
+    @Override
+    protected boolean isDeterministic() {
+        return ignitionProbability == 0;
+    }
+
+    /**
+     * Returns the density of trees in the initial forest.
+     *
+     * @return The probability of a cell being initialized as a tree (0 to 1).
+     */
+    public double getTreeDensity() {
+        return treeDensity;
+    }
+
+    /**
+     * Returns the probability of a tree spontaneously catching fire.
+     *
+     * @return The ignition probability per tree and generation (0 to 1).
+     */
+    public double getIgnitionProbability() {
+        return ignitionProbability;
+    }
+
+    /**
+     * Changes the parameters of the simulation, e.g. to reuse the grids of this forest
+     * for another run; the new tree density applies from the next {@link #initializeRandomState()}.
+     * A positive ignition probability makes the rules stochastic, which cycle detection does not
+     * support: disable it first with {@code setCycleDetection(0, ...)}.
+     *
+     * @param treeDensity         Density of trees in the forest (0 to 1).
+     * @param ignitionProbability Probability of a tree spontaneously catching fire (0 to 1).
+     * @throws IllegalStateException If the ignition probability is positive while cycle detection is enabled.
+     */
+    public void setParameters(double treeDensity, double ignitionProbability) {
+        if (ignitionProbability > 0 && isStateHashing()) { // The state hash is only kept for cycle detection.
+            throw new IllegalStateException("Cycle detection is enabled; spontaneous ignition would make"
+                    + " the forest fire non-deterministic");
         }
-        return false; // No burning neighbors found.
+        this.treeDensity = treeDensity;
+        this.ignitionProbability = ignitionProbability;
+        markAllTilesDirty(); // The volatile tiles depend on the ignition probability.
     }
 
     /**
-     * Prints the current state of the forest fire simulation.
+     * Writes the current state of the forest fire simulation.
      * Different characters represent different cell states:
      * - {@code "="} for empty cells.
      * - {@code "+"} for trees.
      * - {@code "!"} for burning trees.
+     *
+     * @param out The writer receiving the text of the forest.
+     * @throws IOException If the writer fails.
      */
     @Override
-    protected void printState() {
-        for (int[] row : state) {
-            for (int cell : row) {
+    public void writeState(Writer out) throws IOException {
+        int[] cells = new int[state.getCols()]; // States of the row being written.
+        for (int i = 0; i < state.getRows(); i++) {
+            state.getRow(i, cells);
+            for (int cell : cells) {
                 if (cell == EMPTY) {
-                    System.out.print("= "); // Empty cell
+                    out.write("= "); // Empty cell
                 } else if (cell == TREE) {
-                    System.out.print("+ "); // Tree
+                    out.write("+ "); // Tree
                 } else {
-                    System.out.print("! "); // Burning tree
+                    out.write("! "); // Burning tree
                 }
             }
-            System.out.println(); // Newline for the next row.
+            out.write(System.lineSeparator()); // Newline for the next row.
         }
-        System.out.println(); // Extra newline for better readability between steps.
+        out.write(System.lineSeparator()); // Extra newline for better readability between steps.
     }
 }
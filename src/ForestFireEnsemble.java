@@ -0,0 +1,393 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Batch runner for forest fire ensembles, e.g. percolation studies over many small forests.
+ * Every combination of a tree density and an ignition probability of the sweep is simulated
+ * {@code replicas} times with different seeds; the runs are spread over a work-stealing pool.
+ * <p>
+ * Each run ends when no tree burns anymore once a fire has started (with spontaneous ignition
+ * only, a run first waits for the first fire unless no tree is left), or after the maximum
+ * number of steps. Only summary statistics are kept: the burn fraction
+ * (share of the initial trees that burned) and the time to extinction of every sweep point
+ * are aggregated as the runs finish, and the forests are reused from run to run, so memory
+ * stays proportional to the parallelism rather than to the number of runs.
+ * <p>
+ * Typical use:
+ * <pre>
+ * ForestFireEnsemble ensemble = new ForestFireEnsemble(256, 256, densities, new double[] {0}, 100);
+ * for (ForestFireEnsemble.Result result : ensemble.run()) {
+ *     System.out.println(result);
+ * }
+ * </pre>
+ */
+public class ForestFireEnsemble {
+
+    private final int rows;                       // Number of rows of the forests.
+    private final int cols;                       // Number of columns of the forests.
+    private final double[] treeDensities;         // Tree densities of the sweep.
+    private final double[] ignitionProbabilities; // Ignition probabilities of the sweep.
+    private final int replicas;                   // Number of runs of each sweep point.
+
+    private long seed;                            // Seed from which the seed of every run is derived.
+    private int maxSteps;                         // Largest number of steps of a run.
+    private int parallelism = Runtime.getRuntime().availableProcessors(); // Number of concurrent runs.
+    private int tileSize = 32;                    // Activity tracking tile size, or 0.
+    private boolean igniteEdge = true;            // Whether the trees of the first column burn at generation 0.
+    private GridStorage storage = GridStorage.BYTE; // Representation of the cells.
+    private ForestFire.Engine engine = ForestFire.Engine.GRID; // Implementation of the forests.
+
+    private final ConcurrentLinkedQueue<Runner> idleRunners = new ConcurrentLinkedQueue<>(); // Forests ready for reuse.
+
+    /**
+     * Constructor for the {@code ForestFireEnsemble} class.
+     *
+     * @param rows                  Number of rows of the forests.
+     * @param cols                  Number of columns of the forests.
+     * @param treeDensities         Tree densities of the sweep (0 to 1).
+     * @param ignitionProbabilities Ignition probabilities of the sweep (0 to 1).
+     * @param replicas              Number of runs of each combination of the sweep.
+     */
+    public ForestFireEnsemble(int rows, int cols, double[] treeDensities, double[] ignitionProbabilities, int replicas) {
+        if (treeDensities.length == 0 || ignitionProbabilities.length == 0) {
+            throw new IllegalArgumentException("The sweep must have at least one density and one probability");
+        }
+        if (replicas < 1) {
+            throw new IllegalArgumentException("Replicas must be at least 1: " + replicas);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.treeDensities = treeDensities.clone();
+        this.ignitionProbabilities = ignitionProbabilities.clone();
+        this.replicas = replicas;
+        this.maxSteps = (int) Math.min(Integer.MAX_VALUE, (long) rows * cols); // A fire without ignition ends by then.
+    }
+
+    /**
+     * Sets the seed of the ensemble. Run {@code k} of the sweep always uses the same forest,
+     * so an ensemble is reproducible whatever its parallelism.
+     *
+     * @param seed The seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the largest number of steps of a run; runs still burning by then are counted as unfinished.
+     *
+     * @param maxSteps The maximum number of steps, {@code rows * cols} by default.
+     */
+    public void setMaxSteps(int maxSteps) {
+        if (maxSteps < 0) {
+            throw new IllegalArgumentException("Maximum steps must not be negative: " + maxSteps);
+        }
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Sets the number of runs computed concurrently. Each run is stepped by a single thread.
+     *
+     * @param parallelism The number of worker threads, the number of processors by default.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the activity tracking tile size of the forests (see
+     * {@link CellularAutomaton#setActivityTracking(int)}); fire fronts are thin, so most tiles are skipped.
+     *
+     * @param tileSize The tile size, 32 by default, or 0 to recompute every cell.
+     */
+    public void setActivityTracking(int tileSize) {
+        if (tileSize < 0) {
+            throw new IllegalArgumentException("Tile size must not be negative: " + tileSize);
+        }
+        this.tileSize = tileSize;
+        releaseRunners();
+    }
+
+    /**
+     * Sets whether the trees of the first column are set on fire at generation 0, as in
+     * percolation studies. Otherwise fires only start by spontaneous ignition.
+     *
+     * @param igniteEdge {@code true} (the default) to ignite the first column.
+     */
+    public void setIgniteEdge(boolean igniteEdge) {
+        this.igniteEdge = igniteEdge;
+    }
+
+    /**
+     * Sets the representation of the cells of the forests.
+     *
+     * @param storage The grid storage, {@link GridStorage#BYTE} by default.
+     */
+    public void setGridStorage(GridStorage storage) {
+        this.storage = storage;
+        releaseRunners();
+    }
+
+    /**
+     * Sets the implementation of the forests. {@link ForestFire.Engine#FRONTIER} only visits
+     * the burning trees, which pays off on large, sparse forests.
+     *
+     * @param engine The engine, {@link ForestFire.Engine#GRID} by default.
+     */
+    public void setEngine(ForestFire.Engine engine) {
+        this.engine = engine;
+        releaseRunners();
+    }
+
+    /**
+     * Returns the total number of runs of the ensemble.
+     *
+     * @return The number of sweep points times the number of replicas.
+     */
+    public long getRunCount() {
+        return (long) treeDensities.length * ignitionProbabilities.length * replicas;
+    }
+
+    /**
+     * Runs the whole ensemble and returns the statistics of every sweep point.
+     *
+     * @return One result per combination of the sweep, densities varying slowest.
+     */
+    public List<Result> run() {
+        int runs = Math.toIntExact(getRunCount());
+        List<Result> results = new ArrayList<>();
+        for (double density : treeDensities) {
+            for (double probability : ignitionProbabilities) {
+                results.add(new Result(density, probability));
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new RunRange(results, 0, runs));
+        } finally {
+            pool.shutdown();
+            releaseRunners();
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Releases the forests of the idle runners, e.g. the mappings of memory-mapped grids, once
+     * the ensemble is done with them or their settings changed.
+     */
+    private void releaseRunners() {
+        for (Runner runner = idleRunners.poll(); runner != null; runner = idleRunners.poll()) {
+            runner.forest.release();
+        }
+    }
+
+    /**
+     * Task computing a range of runs, split in halves so idle workers can steal them.
+     */
+    private final class RunRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Result> results;
+        private final int fromRun;
+        private final int toRun;
+
+        RunRange(List<Result> results, int fromRun, int toRun) {
+            this.results = results;
+            this.fromRun = fromRun;
+            this.toRun = toRun;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRun - fromRun == 1) {
+                runOne(results, fromRun);
+                return;
+            }
+            int middle = (fromRun + toRun) >>> 1;
+            invokeAll(new RunRange(results, fromRun, middle), new RunRange(results, middle, toRun));
+        }
+    }
+
+    /**
+     * Computes one run on a reused forest and adds its outcome to the statistics of its sweep point.
+     */
+    private void runOne(List<Result> results, int run) {
+        Result result = results.get(run / replicas);
+        Runner runner = idleRunners.poll();
+        if (runner == null) {
+            runner = new Runner();
+        }
+        try {
+            runner.run(result, runSeed(run));
+        } finally {
+            idleRunners.add(runner);
+        }
+    }
+
+    /**
+     * Derives the seed of a run from the seed of the ensemble.
+     */
+    private long runSeed(int run) {
+        long z = seed + (run + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L; // SplitMix64 finalizer.
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Forest reused by successive runs, with the metrics listener counting its trees and burning
+     * trees as the rules step it, so the end of a run is detected without scanning the grid.
+     */
+    private final class Runner implements MetricsListener {
+        private final ForestFire forest;
+        private long trees = -1;  // Trees after the last step, or -1 before the first one.
+        private long burning;     // Burning trees after the last step.
+
+        Runner() {
+            forest = ForestFire.create(rows, cols, 0, 0, engine, storage);
+            forest.setActivityTracking(tileSize);
+            forest.addMetricsListener(this);
+        }
+
+        @Override
+        public void onMetrics(CellularAutomaton automaton, GenerationMetrics metrics) {
+            trees = metrics.getCellsInState(ForestFire.TREE);
+            burning = metrics.getCellsInState(ForestFire.BURNING);
+        }
+
+        /**
+         * Runs one forest until its fire dies out, and records the outcome.
+         */
+        void run(Result result, long runSeed) {
+            double probability = result.getIgnitionProbability();
+            forest.setParameters(result.getTreeDensity(), probability);
+            forest.setSeed(runSeed);
+            forest.initializeRandomState();
+            trees = -1;
+            burning = igniteEdge ? igniteFirstColumn() : 0;
+            long initialTrees = 0; // Trees and burning trees of generation 0.
+            boolean fireStarted = burning > 0;
+            int steps = 0;
+            while (burning > 0 || (!fireStarted && probability > 0 && trees != 0)) {
+                if (steps == maxSteps) {
+                    result.addUnfinished();
+                    return;
+                }
+                long burningBefore = burning;
+                forest.step();
+                steps++;
+                if (steps == 1) { // Burning trees burn out in one step; the others are still trees or burning.
+                    initialTrees = trees + burning + burningBefore;
+                }
+                fireStarted |= burning > 0;
+            }
+            double burned = (initialTrees > 0) ? (double) (initialTrees - trees) / initialTrees : 0.0;
+            result.addRun(burned, steps);
+        }
+
+        /**
+         * Sets the trees of the first column on fire.
+         *
+         * @return The number of burning trees.
+         */
+        private long igniteFirstColumn() {
+            long ignited = 0;
+            for (int i = 0; i < rows; i++) {
+                if (forest.getCell(i, 0) == ForestFire.TREE) {
+                    forest.setCell(i, 0, ForestFire.BURNING);
+                    ignited++;
+                }
+            }
+            return ignited;
+        }
+    }
+
+    /**
+     * Statistics of the runs of one sweep point. Updated concurrently while the ensemble runs.
+     */
+    public static final class Result {
+        private final double treeDensity;
+        private final double ignitionProbability;
+        private final SummaryStatistics burnFraction = new SummaryStatistics();
+        private final SummaryStatistics extinctionTime = new SummaryStatistics();
+        private long unfinished;
+
+        Result(double treeDensity, double ignitionProbability) {
+            this.treeDensity = treeDensity;
+            this.ignitionProbability = ignitionProbability;
+        }
+
+        synchronized void addRun(double burned, int steps) {
+            burnFraction.add(burned);
+            extinctionTime.add(steps);
+        }
+
+        synchronized void addUnfinished() {
+            unfinished++;
+        }
+
+        /**
+         * Returns the tree density of this sweep point.
+         *
+         * @return The tree density.
+         */
+        public double getTreeDensity() {
+            return treeDensity;
+        }
+
+        /**
+         * Returns the ignition probability of this sweep point.
+         *
+         * @return The ignition probability.
+         */
+        public double getIgnitionProbability() {
+            return ignitionProbability;
+        }
+
+        /**
+         * Returns the share of the initial trees that burned, over the finished runs.
+         *
+         * @return The statistics of the burn fraction (0 to 1).
+         */
+        public synchronized SummaryStatistics getBurnFraction() {
+            return burnFraction;
+        }
+
+        /**
+         * Returns the number of generations until the fire died out, over the finished runs.
+         *
+         * @return The statistics of the time to extinction.
+         */
+        public synchronized SummaryStatistics getExtinctionTime() {
+            return extinctionTime;
+        }
+
+        /**
+         * Returns the number of runs still burning after the maximum number of steps.
+         *
+         * @return The number of unfinished runs.
+         */
+        public synchronized long getUnfinishedRuns() {
+            return unfinished;
+        }
+
+        /**
+         * Returns one line describing the statistics of this sweep point.
+         *
+         * @return The parameters, burn fraction and time to extinction.
+         */
+        @Override
+        public synchronized String toString() {
+            return "density=" + treeDensity + " ignition=" + ignitionProbability
+                    + " burned=" + burnFraction + " extinction=" + extinctionTime
+                    + " unfinished=" + unfinished;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Observer recording the observed generations of a cellular automaton to a file.
+ * <p>
+ * The stepping thread only copies the cells into a snapshot and hands it to a bounded queue;
+ * a background thread encodes each snapshot as the difference with the previous one,
+ * run-length encodes it and appends it to the file. When the writer falls behind, the
+ * {@link BackpressurePolicy} decides whether the stepping thread waits or frames are dropped.
+ * <p>
+ * The file starts with the magic number {@code "CARF"}, the format version and the number of
+ * rows and columns, all big-endian. Each frame follows as its generation (long), a kind byte
+ * (0 for a key frame, encoded against an all-zero grid, 1 for a frame encoded against the
+ * previous frame of the file), the length of its data (int) and the data. The data XORs the
+ * row-major cells with the reference, one byte per cell, and is made of pairs of varints
+ * (number of unchanged cells, number of changed cells) each followed by the changed bytes.
+ * See {@link RecordingReader} to read a recording back.
+ */
+public class FrameRecorder extends AsyncFrameSink {
+
+    static final int MAGIC = 0x43415246;       // "CARF".
+    static final int VERSION = 1;              // Version of the file format.
+    static final int KEY_FRAME_INTERVAL = 64;  // Number of frames between two key frames.
+
+    /**
+     * Largest number of cells of a recorded grid: the encoding of a frame, up to 1.5 bytes per
+     * cell, must fit in one array.
+     */
+    public static final int MAX_CELLS = (int) ((Integer.MAX_VALUE - 8 - 16) / 3L * 2);
+
+    private final DataOutputStream out;        // Recording file.
+
+    private int rows = -1;              // Dimensions of the recorded grid, set by the first frame.
+    private int cols = -1;
+    private int[] row;                  // Buffer receiving one row of the automaton.
+
+    private byte[] previous;            // Last frame written, reference of the next delta; writer only.
+    private byte[] encoded;             // Reused buffer receiving the encoded frames; writer only.
+
+    /**
+     * Constructor for the {@code FrameRecorder} class with a queue of 16 frames. When the queue
+     * is full, the stepping thread waits for the writer at most
+     * {@link AsyncFrameSink#DEFAULT_MAX_BLOCK_MILLIS} milliseconds, then drops the frame.
+     *
+     * @param file The file receiving the recording; it is replaced if it exists.
+     * @throws IOException If the file cannot be created.
+     */
+    public FrameRecorder(Path file) throws IOException {
+        this(file, 16, BackpressurePolicy.BLOCK, DEFAULT_MAX_BLOCK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor for the {@code FrameRecorder} class.
+     *
+     * @param file          The file receiving the recording; it is replaced if it exists.
+     * @param queueCapacity The maximum number of frames waiting for the writer.
+     * @param policy        What to do when the queue is full.
+     * @param maxBlock      The longest time the {@code BLOCK} policy waits for the writer.
+     * @param unit          The unit of {@code maxBlock}.
+     * @throws IOException If the file cannot be created.
+     */
+    public FrameRecorder(Path file, int queueCapacity, BackpressurePolicy policy, long maxBlock, TimeUnit unit)
+            throws IOException {
+        super("recording", queueCapacity, policy, maxBlock, unit);
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        start();
+    }
+
+    /**
+     * Copies the cells of the automaton into a snapshot, reusing a buffer released by the writer.
+     *
+     * @param automaton The observed cellular automaton.
+     * @param cells     A snapshot released by the writer, or {@code null}.
+     * @return The snapshot, one byte per cell in row-major order.
+     */
+    @Override
+    protected byte[] render(CellularAutomaton automaton, byte[] cells) {
+        if (rows < 0) {
+            if (automaton.getStateCount() > 256) {
+                throw new IllegalArgumentException("Recordings store one byte per cell: "
+                        + automaton.getStateCount() + " states");
+            }
+            if ((long) automaton.getRows() * automaton.getCols() > MAX_CELLS) {
+                throw new IllegalArgumentException("Recordings hold at most " + MAX_CELLS + " cells per frame: "
+                        + automaton.getRows() + "x" + automaton.getCols());
+            }
+            rows = automaton.getRows();
+            cols = automaton.getCols();
+            row = new int[cols];
+        } else if (automaton.getRows() != rows || automaton.getCols() != cols) {
+            throw new IllegalArgumentException("Recording of a " + rows + "x" + cols + " grid cannot receive a "
+                    + automaton.getRows() + "x" + automaton.getCols() + " grid");
+        }
+        if (cells == null) {
+            cells = new byte[Math.multiplyExact(rows, cols)];
+        }
+        for (int i = 0; i < rows; i++) {
+            automaton.getRow(i, row);
+            int offset = i * cols;
+            for (int j = 0; j < cols; j++) {
+                cells[offset + j] = (byte) row[j];
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Appends a snapshot to the file, as a key frame every {@link #KEY_FRAME_INTERVAL} frames
+     * and as a delta against the previous snapshot otherwise.
+     *
+     * @param generation The generation of the snapshot.
+     * @param cells      The snapshot.
+     * @return The previous snapshot, no longer needed as a reference.
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    protected byte[] encode(long generation, byte[] cells) throws IOException {
+        if (previous == null) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows); // Published by the queue, like the cells.
+            out.writeInt(cols);
+            encoded = new byte[maxEncodedLength(cells.length)];
+        }
+        boolean key = getWrittenFrames() % KEY_FRAME_INTERVAL == 0;
+        int length = encode(cells, key ? null : previous, encoded);
+        out.writeLong(generation);
+        out.writeByte(key ? 0 : 1);
+        out.writeInt(length);
+        out.write(encoded, 0, length);
+        byte[] released = previous;
+        previous = cells;
+        return released;
+    }
+
+    /**
+     * Flushes the frames written to the file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    protected void finish() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Closes the recording file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    protected void closeOutput() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Encodes the XOR of the cells with a reference frame as runs of unchanged and changed bytes.
+     *
+     * @param cells     The cells of the frame.
+     * @param reference The reference frame, of the same length, or {@code null} for an all-zero
+     *                  reference (key frames).
+     * @param encoded   The buffer receiving the encoded frame.
+     * @return The number of bytes written to {@code encoded}.
+     */
+    static int encode(byte[] cells, byte[] reference, byte[] encoded) {
+        if (reference == null) {
+            return encodeKey(cells, encoded);
+        }
+        int length = 0;
+        int k = 0;
+        while (k < cells.length) {
+            int start = k;
+            while (k < cells.length && cells[k] == reference[k]) {
+                k++;
+            }
+            int unchanged = k - start;
+            start = k;
+            while (k < cells.length && cells[k] != reference[k]) {
+                k++;
+            }
+            length = writeVarint(encoded, length, unchanged);
+            length = writeVarint(encoded, length, k - start);
+            for (int c = start; c < k; c++) {
+                encoded[length++] = (byte) (cells[c] ^ reference[c]);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Encodes a key frame: the runs of zero and non-zero cells, XORed with an all-zero reference.
+     */
+    private static int encodeKey(byte[] cells, byte[] encoded) {
+        int length = 0;
+        int k = 0;
+        while (k < cells.length) {
+            int start = k;
+            while (k < cells.length && cells[k] == 0) {
+                k++;
+            }
+            int unchanged = k - start;
+            start = k;
+            while (k < cells.length && cells[k] != 0) {
+                k++;
+            }
+            length = writeVarint(encoded, length, unchanged);
+            length = writeVarint(encoded, length, k - start);
+            System.arraycopy(cells, start, encoded, length, k - start);
+            length += k - start;
+        }
+        return length;
+    }
+
+    /**
+     * Returns an upper bound of the encoded size of a frame of at most {@link #MAX_CELLS} cells.
+     */
+    private static int maxEncodedLength(int cells) {
+        // At worst every other cell changes: two one-byte varints and one literal per changed cell.
+        return (int) (cells * 3L / 2 + 16);
+    }
+
+    /**
+     * Writes an unsigned varint (7 bits per byte, low bits first) and returns the new length.
+     */
+    private static int writeVarint(byte[] buffer, int length, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+        return length;
+    }
+
+    /**
+     * Returns the number of frames written to the file so far.
+     *
+     * @return The number of recorded frames.
+     */
+    public long getRecordedFrames() {
+        return getWrittenFrames();
+    }
+}
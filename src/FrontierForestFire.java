@@ -0,0 +1,254 @@
+import java.util.Arrays;
+
+/**
+ * Forest fire engine that only visits the burning front, instead of the whole grid.
+ * <p>
+ * Fire can only spread from burning trees, so the engine keeps the burning cells in a queue
+ * and spreads the fire from them, updating the grid in place. The number of trees of each row
+ * is kept in a Fenwick tree, and spontaneous ignition skips a geometrically distributed number
+ * of trees between two ignitions, so a step draws one random number per ignited tree instead of
+ * one per tree. The cost of a step is proportional to the fire front and the ignitions, plus a
+ * logarithmic factor and the scan of the rows of the ignited trees.
+ * <p>
+ * The generations follow the same distribution as {@link ForestFire}'s, but not the same draws:
+ * for a given seed both engines burn different forests. Every step runs on the calling thread;
+ * the parallelism level and activity tracking are ignored. Every boundary condition is
+ * supported; with a reflective one, the fire spreads as with dead cells past the edges, since
+ * the mirror of a cell past an edge is a neighbor of the burning cell already.
+ */
+public class FrontierForestFire extends ForestFire {
+
+    private long[] front = new long[64];     // Burning cells, packed as row << 32 | col.
+    private long[] nextFront = new long[64]; // Cells catching fire during the current step.
+    private int frontSize;                   // Number of burning cells.
+    private long[] treesBefore;              // Fenwick tree of the number of trees per row.
+    private long trees;                      // Number of trees of the grid.
+    private byte[] rowCells;                 // Reused buffer receiving a row of the grid.
+    private boolean frontStale = true;       // Whether the front and tree counts must be rebuilt from the cells.
+
+    /**
+     * Constructor for the {@code FrontierForestFire} class.
+     *
+     * @param rows                Number of rows in the forest grid.
+     * @param cols                Number of columns in the forest grid.
+     * @param treeDensity         Density of trees in the forest (0 to 1).
+     * @param ignitionProbability Probability of a tree spontaneously catching fire (0 to 1).
+     */
+    public FrontierForestFire(int rows, int cols, double treeDensity, double ignitionProbability) {
+        this(rows, cols, treeDensity, ignitionProbability, GridStorage.BYTE);
+    }
+
+    /**
+     * Constructor for the {@code FrontierForestFire} class with the cells in a given storage.
+     *
+     * @param rows                Number of rows in the forest grid.
+     * @param cols                Number of columns in the forest grid.
+     * @param treeDensity         Density of trees in the forest (0 to 1).
+     * @param ignitionProbability Probability of a tree spontaneously catching fire (0 to 1).
+     * @param storage             The representation of the cells.
+     */
+    public FrontierForestFire(int rows, int cols, double treeDensity, double ignitionProbability, GridStorage storage) {
+        super(rows, cols, treeDensity, ignitionProbability, storage);
+    }
+
+    /**
+     * Constructor for the {@code FrontierForestFire} class with a fixed seed.
+     *
+     * @param rows                Number of rows in the forest grid.
+     * @param cols                Number of columns in the forest grid.
+     * @param treeDensity         Density of trees in the forest (0 to 1).
+     * @param ignitionProbability Probability of a tree spontaneously catching fire (0 to 1).
+     * @param seed                Seed of the random draws.
+     */
+    public FrontierForestFire(int rows, int cols, double treeDensity, double ignitionProbability, long seed) {
+        this(rows, cols, treeDensity, ignitionProbability);
+        setSeed(seed);
+    }
+
+    /**
+     * Burns out the front, spreads the fire to the trees next to it, then ignites trees spontaneously.
+     */
+    @Override
+    protected void applyRules() {
+        if (frontStale) {
+            rebuildFront();
+        }
+        int cols = getCols();
+        int rows = getRows();
+        boolean hashing = isStateHashing();
+        long hashDelta = 0;
+        int ignited = 0;
+        BoundaryCondition boundary = getBoundary();
+        for (int f = 0; f < frontSize; f++) {
+            int i = (int) (front[f] >>> 32);
+            int j = (int) front[f];
+            boolean inside = i > 0 && i < rows - 1 && j > 0 && j < cols - 1; // No neighbor past an edge.
+            for (int di = -1; di <= 1; di++) {
+                for (int dj = -1; dj <= 1; dj++) {
+                    int r = inside ? i + di : boundary.map(i + di, rows);
+                    int c = inside ? j + dj : boundary.map(j + dj, cols);
+                    if (r >= 0 && c >= 0 && state.get(r, c) == TREE) { // A tree catches fire if a neighbor is burning.
+                        ignite(r, c, ignited++);
+                        if (hashing) {
+                            hashDelta ^= zobristKey(r, c, TREE) ^ zobristKey(r, c, BURNING);
+                        }
+                    }
+                }
+            }
+        }
+        for (int f = 0; f < frontSize; f++) { // Burning trees become empty after burning out.
+            int i = (int) (front[f] >>> 32);
+            int j = (int) front[f];
+            state.set(i, j, EMPTY);
+            if (hashing) {
+                hashDelta ^= zobristKey(i, j, BURNING) ^ zobristKey(i, j, EMPTY);
+            }
+        }
+        int spread = ignited;
+        double probability = getIgnitionProbability();
+        if (probability > 0) {
+            // Skip a geometric number of trees between two spontaneous ignitions; the trees that
+            // already caught fire are no longer counted, so the ranks shift down after each one.
+            double logKeep = Math.log1p(-probability);
+            int draw = 0;
+            long rank = skippedTrees(logKeep, draw++);
+            while (rank < trees) {
+                long cell = findTree(rank);
+                int i = (int) (cell >>> 32);
+                int j = (int) cell;
+                ignite(i, j, ignited++);
+                if (hashing) {
+                    hashDelta ^= zobristKey(i, j, TREE) ^ zobristKey(i, j, BURNING);
+                }
+                long skipped = skippedTrees(logKeep, draw++);
+                rank = (skipped < trees - rank) ? rank + skipped : trees;
+            }
+        }
+        int burnedOut = frontSize;
+        long[] previous = front;
+        front = nextFront;
+        nextFront = previous;
+        frontSize = ignited;
+
+        recordUpdatedCells(9L * burnedOut + (ignited - spread));
+        if (burnedOut + ignited > 0) {
+            recordChanges(burnedOut + ignited, hashDelta);
+            recordTransitions(BURNING, EMPTY, burnedOut);
+            recordTransitions(TREE, BURNING, ignited);
+        }
+    }
+
+    /**
+     * Sets a tree on fire and appends it to the next front.
+     */
+    private void ignite(int row, int col, int index) {
+        state.set(row, col, BURNING);
+        if (index == nextFront.length) {
+            nextFront = Arrays.copyOf(nextFront, index * 2);
+        }
+        nextFront[index] = (long) row << 32 | col;
+        addTrees(row, -1);
+    }
+
+    /**
+     * Returns the number of trees to skip before the next spontaneous ignition: the number of
+     * failures before the first success of trials of probability {@code 1 - exp(logKeep)}.
+     * The draws of a generation are addressed by row -1, which holds no cell, and the draw index.
+     */
+    private long skippedTrees(double logKeep, int draw) {
+        if (logKeep == Double.NEGATIVE_INFINITY) {
+            return 0; // Every tree ignites.
+        }
+        double u = randomSource.nextDouble(generation, -1, draw);
+        double skipped = Math.floor(Math.log1p(-u) / logKeep);
+        return (skipped < Long.MAX_VALUE) ? (long) skipped : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the tree of a given rank, in row-major order among the trees of the grid.
+     *
+     * @return The cell, packed as {@code row << 32 | col}.
+     */
+    private long findTree(long rank) {
+        int row = 0; // Descend the Fenwick tree to the row holding the tree.
+        for (int step = Integer.highestOneBit(getRows()); step > 0; step >>= 1) {
+            int next = row + step;
+            if (next <= getRows() && treesBefore[next] <= rank) {
+                row = next;
+                rank -= treesBefore[next];
+            }
+        }
+        state.getRow(row, 0, rowCells, 0, getCols());
+        for (int j = 0; ; j++) {
+            if (rowCells[j] == TREE && rank-- == 0) {
+                return (long) row << 32 | j;
+            }
+        }
+    }
+
+    /**
+     * Adds to the number of trees of a row.
+     */
+    private void addTrees(int row, long delta) {
+        for (int k = row + 1; k <= getRows(); k += k & -k) {
+            treesBefore[k] += delta;
+        }
+        trees += delta;
+    }
+
+    /**
+     * Rebuilds the front and the tree counts from the cells, after they were changed from outside the rules.
+     */
+    private void rebuildFront() {
+        int rows = getRows();
+        int cols = getCols();
+        treesBefore = new long[rows + 1];
+        rowCells = new byte[cols];
+        trees = 0;
+        frontSize = 0;
+        for (int i = 0; i < rows; i++) {
+            state.getRow(i, 0, rowCells, 0, cols);
+            long rowTrees = 0;
+            for (int j = 0; j < cols; j++) {
+                if (rowCells[j] == TREE) {
+                    rowTrees++;
+                } else if (rowCells[j] == BURNING) {
+                    if (frontSize == front.length) {
+                        front = Arrays.copyOf(front, frontSize * 2);
+                    }
+                    front[frontSize++] = (long) i << 32 | j;
+                }
+            }
+            treesBefore[i + 1] = rowTrees;
+            trees += rowTrees;
+        }
+        for (int k = 1; k <= rows; k++) { // Turn the row counts into a Fenwick tree in place.
+            int parent = k + (k & -k);
+            if (parent <= rows) {
+                treesBefore[parent] += treesBefore[k];
+            }
+        }
+        frontStale = false;
+    }
+
+    /**
+     * Marks the front as stale whenever the cells are changed from outside the rules.
+     */
+    @Override
+    protected void markAllTilesDirty() {
+        super.markAllTilesDirty();
+        frontStale = true;
+    }
+
+    /**
+     * Returns the number of burning trees, i.e. the size of the fire front.
+     *
+     * @return The number of burning cells.
+     */
+    public int getFrontSize() {
+        if (frontStale) {
+            rebuildFront();
+        }
+        return frontSize;
+    }
+}
@@ -1,108 +1,91 @@
 /**
- * Class representing a cellular automaton simulating Conway's "Game of Life".
+ * Class representing a cellular automaton simulating Conway's "Game of Life",
+ * the {@link LifeLikeAutomaton} of the rule {@code B3/S23}:
+ * 1. Any live cell with fewer than two live neighbors dies (underpopulation).
+ * 2. Any live cell with two or three live neighbors survives.
+ * 3. Any live cell with more than three live neighbors dies (overpopulation).
+ * 4. Any dead cell with exactly three live neighbors becomes alive (reproduction).
  */
-public class GameOfLife extends CellularAutomaton {
+public class GameOfLife extends LifeLikeAutomaton {
 
     /**
-     * Constructor for the {@code GameOfLife} class.
-     *
-     * @param rows The number of rows in the grid.
-     * @param cols The number of columns in the grid.
-     */
-    public GameOfLife(int rows, int cols) {
-        super(rows, cols); // Initialize the grid with the specified dimensions.
-    }
-
-    /**
-     * Randomly initializes the state of the grid.
-     * Each cell is randomly assigned a state of 0 (dead) or 1 (alive).
+     * The available implementations of the "Game of Life" rules.
      */
-    @Override
-    public void initializeRandomState() {
-        for (int i = 0; i < state.length; i++) {
-            for (int j = 0; j < state[0].length; j++) {
-                state[i][j] = (Math.random() < 0.5) ? 0 : 1; // Randomly assign 0 or 1.
-            }
-        }
+    public enum Engine {
+        GRID,       // One cell per byte in a {@link Grid}.
+        BIT_PACKED, // 64 cells per long, see {@link BitPackedGameOfLife}.
+        HASHLIFE    // Memoized quadtree on an unbounded plane, see {@link HashlifeGameOfLife}.
     }
 
     /**
-     * Evolves the "Game of Life" simulation over a specified number of steps.
+     * Creates a "Game of Life" automaton backed by the requested engine.
+     * The grid engines produce the same generations for the same initial state.
+     * {@link Engine#HASHLIFE} is not a drop-in replacement for them: it runs on an unbounded plane
+     * and only shows the {@code rows x cols} window, so its generations match as long as the
+     * pattern stays away from the window edges, and diverge once cells cross them.
      *
-     * @param numSteps The number of steps to evolve the simulation.
+     * @param rows   The number of rows in the grid.
+     * @param cols   The number of columns in the grid.
+     * @param engine The implementation to use.
+     * @return A new "Game of Life" automaton.
      */
-    @Override
-    public void evolve(int numSteps) {
-        for (int step = 0; step < numSteps; step++) {
-            System.out.println("Step " + (step + 1)); // Display the current step number.
-            printState(); // Print the current state of the grid.
-            applyRules(); // Apply the rules to compute the next state.
+    public static CellularAutomaton create(int rows, int cols, Engine engine) {
+        switch (engine) {
+            case BIT_PACKED:
+                return new BitPackedGameOfLife(rows, cols);
+            case HASHLIFE:
+                return new HashlifeGameOfLife(rows, cols);
+            case GRID:
+            default:
+                return new GameOfLife(rows, cols);
         }
     }
 
     /**
-     * Applies the rules of Conway's "Game of Life" to update the grid state.
-     * Rules:
-     * 1. Any live cell with fewer than two live neighbors dies (underpopulation).
-     * 2. Any live cell with two or three live neighbors survives.
-     * 3. Any live cell with more than three live neighbors dies (overpopulation).
-     * 4. Any dead cell with exactly three live neighbors becomes alive (reproduction).
+     * Creates an automaton running any life-like rule, backed by the requested engine:
+     * {@link LifeLikeAutomaton} on a grid, or {@link BitPackedGameOfLife} for two-state rules.
+     * Hashlife only runs Conway's rule, on an unbounded plane as in {@link #create(int, int, Engine)}.
+     *
+     * @param rows   The number of rows in the grid.
+     * @param cols   The number of columns in the grid.
+     * @param engine The implementation to use.
+     * @param rule   The rule.
+     * @return A new automaton.
      */
-    @Override
-    protected void applyRules() {
-        int[][] newBoard = new int[state.length][state[0].length]; // Temporary grid for the next state.
-
-        for (int i = 0; i < state.length; i++) {
-            for (int j = 0; j < state[0].length; j++) {
-                int neighbors = countLiveNeighbors(i, j); // Count the live neighbors of the cell.
-
-                if (state[i][j] == 1) {
-                    // Rule 1 and 2: A live cell survives with 2 or 3 live neighbors.
-                    newBoard[i][j] = (neighbors == 2 || neighbors == 3) ? 1 : 0;
-                } else {
-                    // Rule 4: A dead cell becomes alive with exactly 3 live neighbors.
-                    newBoard[i][j] = (neighbors == 3) ? 1 : 0;
+    public static CellularAutomaton create(int rows, int cols, Engine engine, LifeRule rule) {
+        switch (engine) {
+            case BIT_PACKED:
+                return new BitPackedGameOfLife(rows, cols, rule);
+            case HASHLIFE:
+                if (!rule.equals(LifeRule.CONWAY)) {
+                    throw new IllegalArgumentException("The Hashlife engine only runs " + LifeRule.CONWAY + ": " + rule);
                 }
-            }
+                return new HashlifeGameOfLife(rows, cols);
+            case GRID:
+            default:
+                return rule.equals(LifeRule.CONWAY) ? new GameOfLife(rows, cols) : new LifeLikeAutomaton(rows, cols, rule);
         }
-
-        state = newBoard; // Update the grid with the newly computed state.
     }
 
     /**
-     * Counts the number of live neighbors around a specific cell.
+     * Constructor for the {@code GameOfLife} class.
      *
-     * @param row The row index of the cell.
-     * @param col The column index of the cell.
-     * @return The number of live neighbors.
+     * @param rows The number of rows in the grid.
+     * @param cols The number of columns in the grid.
      */
-    private int countLiveNeighbors(int row, int col) {
-        int count = 0;
-
-        // Loop through the 3x3 grid surrounding the cell, excluding the cell itself.
-        for (int i = row - 1; i <= row + 1; i++) {
-            for (int j = col - 1; j <= col + 1; j++) {
-                if (i >= 0 && i < state.length && j >= 0 && j < state[0].length && !(i == row && j == col)) {
-                    count += state[i][j]; // Add the state of the neighbor (0 or 1).
-                }
-            }
-        }
-
-        return count;
+    public GameOfLife(int rows, int cols) {
+        super(rows, cols, LifeRule.CONWAY); // Initialize the grid of dead (0) and alive (1) cells.
     }
 
     /**
-     * Prints the current state of the "Game of Life" grid.
-     * Uses "+" to represent alive cells and "-" for dead cells.
+     * Constructor for the {@code GameOfLife} class with the cells in a given storage,
+     * e.g. {@link GridStorage#MAPPED} for grids larger than the heap.
+     *
+     * @param rows    The number of rows in the grid.
+     * @param cols    The number of columns in the grid.
+     * @param storage The representation of the cells.
      */
-    @Override
-    protected void printState() {
-        for (int[] row : state) {
-            for (int cell : row) {
-                System.out.print((cell == 1) ? "+ " : "- "); // "+" for alive, "-" for dead.
-            }
-            System.out.println(); // Newline for the next row.
-        }
-        System.out.println(); // Extra newline for better readability between steps.
+    public GameOfLife(int rows, int cols, GridStorage storage) {
+        super(rows, cols, LifeRule.CONWAY, storage);
     }
 }
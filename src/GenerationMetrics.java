@@ -0,0 +1,106 @@
+/**
+ * Metrics of one step of a cellular automaton, passed to the {@link MetricsListener}s.
+ * The counters are gathered by the rules while they compute the step, so collecting
+ * them does not take a second pass over the grid.
+ */
+public final class GenerationMetrics {
+
+    long generation;     // Generation reached by the step.
+    long stepNanos;      // Duration of the rules, in nanoseconds.
+    long updatedCells;   // Number of cells recomputed by the step.
+    long changedCells;   // Number of cells whose state changed, or -1 if unknown.
+    long allocatedBytes; // Bytes allocated by the stepping thread, or -1 if unknown.
+    final long[] stateCounts; // Number of cells in each state after the step.
+
+    /**
+     * Constructor for the {@code GenerationMetrics} class.
+     *
+     * @param states The number of states whose cells are counted.
+     */
+    GenerationMetrics(int states) {
+        this.stateCounts = new long[states];
+    }
+
+    /**
+     * Returns the generation reached by the step.
+     *
+     * @return The generation.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the time spent applying the rules.
+     *
+     * @return The duration of the step, in nanoseconds.
+     */
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    /**
+     * Returns the number of cells recomputed by the step; with activity tracking,
+     * the cells of skipped tiles are not included.
+     *
+     * @return The number of updated cells.
+     */
+    public long getUpdatedCells() {
+        return updatedCells;
+    }
+
+    /**
+     * Returns the number of cells whose state changed.
+     *
+     * @return The number of changed cells, or -1 if the engine does not report its changes.
+     */
+    public long getChangedCells() {
+        return changedCells;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the thread running the step.
+     *
+     * @return The allocated bytes, or -1 if the JVM does not measure them.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the number of states whose cells are counted.
+     *
+     * @return The number of counted states, or 0 for automata with more than
+     *         {@link CellularAutomaton#MAX_COUNTED_STATES} states.
+     */
+    public int getCountedStates() {
+        return stateCounts.length;
+    }
+
+    /**
+     * Returns the number of cells in a state after the step,
+     * e.g. the number of burning trees of a {@link ForestFire}.
+     *
+     * @param state The state.
+     * @return The number of cells in that state.
+     */
+    public long getCellsInState(int state) {
+        return stateCounts[state];
+    }
+
+    /**
+     * Returns the number of cells in a state other than 0 after the step.
+     *
+     * @return The number of live cells, or -1 if the states are not counted.
+     */
+    public long getLiveCells() {
+        if (stateCounts.length == 0) {
+            return -1;
+        }
+        long live = 0;
+        for (int v = 1; v < stateCounts.length; v++) {
+            live += stateCounts[v];
+        }
+        return live;
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Observer notified by {@link CellularAutomaton#run(int, GenerationObserver, int)}
+ * while an automaton evolves. Observers are only called at the interval requested
+ * by the run, so stepping itself never pays for rendering or recording.
+ */
+@FunctionalInterface
+public interface GenerationObserver {
+
+    /**
+     * Called with the automaton in the state of the given generation.
+     * Implementations must not modify the automaton.
+     *
+     * @param automaton  The observed cellular automaton.
+     * @param generation The generation of the current state (0 for the initial state).
+     */
+    void onGeneration(CellularAutomaton automaton, long generation);
+}
@@ -0,0 +1,169 @@
+/**
+ * Abstract class representing the cells of a two-dimensional grid.
+ * Cells are stored in row-major order in a single contiguous buffer, and each
+ * backend chooses how many bits a cell occupies. A cell holds a state between
+ * 0 and the number of states the grid was created for, minus one.
+ */
+public abstract class Grid {
+
+    protected final int rows; // Number of rows in the grid.
+    protected final int cols; // Number of columns in the grid.
+
+    /**
+     * Initializes a new instance of the {@code Grid} class.
+     *
+     * @param rows The number of rows in the grid.
+     * @param cols The number of columns in the grid.
+     */
+    protected Grid(int rows, int cols) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Grid dimensions must not be negative: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Returns the number of rows in the grid.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns in the grid.
+     *
+     * @return The number of columns.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the state of a single cell.
+     *
+     * @param row The row index of the cell.
+     * @param col The column index of the cell.
+     * @return The state of the cell.
+     */
+    public abstract int get(int row, int col);
+
+    /**
+     * Sets the state of a single cell.
+     * Cells of different rows never share storage, so different rows may be written concurrently.
+     *
+     * @param row   The row index of the cell.
+     * @param col   The column index of the cell.
+     * @param value The new state of the cell.
+     */
+    public abstract void set(int row, int col, int value);
+
+    /**
+     * Copies the states of a row into an array.
+     *
+     * @param row   The row index.
+     * @param cells The array receiving the {@code cols} states of the row.
+     */
+    public void getRow(int row, int[] cells) {
+        for (int j = 0; j < cols; j++) {
+            cells[j] = get(row, j);
+        }
+    }
+
+    /**
+     * Sets the states of a row from an array.
+     *
+     * @param row   The row index.
+     * @param cells The array holding the {@code cols} new states of the row.
+     */
+    public void setRow(int row, int[] cells) {
+        for (int j = 0; j < cols; j++) {
+            set(row, j, cells[j]);
+        }
+    }
+
+    /**
+     * Copies the states of part of a row into a byte array; the states must fit in a byte.
+     *
+     * @param row     The row index.
+     * @param fromCol The first column copied.
+     * @param cells   The array receiving the states.
+     * @param offset  The index of {@code cells} receiving column {@code fromCol}.
+     * @param length  The number of columns copied.
+     */
+    public void getRow(int row, int fromCol, byte[] cells, int offset, int length) {
+        for (int k = 0; k < length; k++) {
+            cells[offset + k] = (byte) get(row, fromCol + k);
+        }
+    }
+
+    /**
+     * Sets the states of part of a row from a byte array, read as unsigned bytes.
+     *
+     * @param row     The row index.
+     * @param fromCol The first column set.
+     * @param cells   The array holding the states.
+     * @param offset  The index of {@code cells} holding column {@code fromCol}.
+     * @param length  The number of columns set.
+     */
+    public void setRow(int row, int fromCol, byte[] cells, int offset, int length) {
+        for (int k = 0; k < length; k++) {
+            set(row, fromCol + k, cells[offset + k] & 0xFF);
+        }
+    }
+
+    /**
+     * Returns the number of bytes used to store the cells.
+     *
+     * @return The size of the cell buffer in bytes.
+     */
+    public abstract long getSizeInBytes();
+
+    /**
+     * Copies every cell of another grid with the same dimensions into this grid, a row at a time.
+     *
+     * @param source The grid to copy.
+     */
+    public void copyFrom(Grid source) {
+        copyRows(source, 0, rows);
+    }
+
+    /**
+     * Copies the rows {@code fromRow} (inclusive) to {@code toRow} (exclusive) of another grid
+     * with the same dimensions into this grid. Distinct bands of rows can be copied concurrently.
+     * Grids of the same representation copy their buffers directly.
+     *
+     * @param source  The grid to copy.
+     * @param fromRow The first row copied.
+     * @param toRow   The row after the last row copied.
+     */
+    public void copyRows(Grid source, int fromRow, int toRow) {
+        checkSameDimensions(source);
+        int[] cells = new int[cols]; // States of the row being copied.
+        for (int i = fromRow; i < toRow; i++) {
+            source.getRow(i, cells);
+            setRow(i, cells);
+        }
+    }
+
+    /**
+     * Checks that another grid has the dimensions of this one.
+     *
+     * @param source The other grid.
+     */
+    protected void checkSameDimensions(Grid source) {
+        if (source.rows != rows || source.cols != cols) {
+            throw new IllegalArgumentException("Grid dimensions differ: " + source.rows + "x" + source.cols
+                    + " and " + rows + "x" + cols);
+        }
+    }
+
+    /**
+     * Releases the resources the grid holds outside the heap. The grid must not be used afterwards.
+     * Heap grids have nothing to release and are left to the garbage collector.
+     */
+    public void release() {
+    }
+}
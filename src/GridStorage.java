@@ -0,0 +1,42 @@
+/**
+ * The available representations of the cells of a {@link CellularAutomaton}.
+ */
+public enum GridStorage {
+    INT,    // One int per cell, see {@link IntGrid}.
+    BYTE,   // One byte per cell, see {@link ByteGrid}.
+    PACKED, // As few bits per cell as the rule needs, see {@link PackedGrid}.
+    MAPPED; // One byte per cell in a memory-mapped file, off the heap, see {@link MappedGrid}.
+
+    /**
+     * Creates an empty grid with this representation.
+     *
+     * @param rows   The number of rows in the grid.
+     * @param cols   The number of columns in the grid.
+     * @param states The number of states the cells must be able to hold.
+     * @return A new grid with every cell in state 0.
+     */
+    public Grid create(int rows, int cols, int states) {
+        switch (this) {
+            case INT:
+                return new IntGrid(rows, cols);
+            case PACKED:
+                return new PackedGrid(rows, cols, PackedGrid.bitsFor(states));
+            case MAPPED:
+                checkByteStates(states);
+                return new MappedGrid(rows, cols);
+            case BYTE:
+            default:
+                checkByteStates(states);
+                return new ByteGrid(rows, cols);
+        }
+    }
+
+    /**
+     * Checks that the states of a rule fit in one byte per cell.
+     */
+    private static void checkByteStates(int states) {
+        if (states > 256) {
+            throw new IllegalArgumentException("A byte grid holds at most 256 states: " + states);
+        }
+    }
+}
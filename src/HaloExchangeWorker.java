@@ -0,0 +1,206 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Properties;
+
+/**
+ * Worker process of a {@link DistributedRun}: owns a strip of rows of the grid, steps it, and
+ * exchanges its boundary rows with the workers of the strips above and below.
+ * <p>
+ * The strip is stored with its halos, the last rows of the strip above and the first rows of
+ * the strip below, and stepped as a grid of its own. After {@code interval} generations, the
+ * worker sends its first and last owned rows to its neighbors and receives their rows into its
+ * halos. Rows flow down first, then up: every worker sends before it receives, and the last
+ * worker of the chain only receives, so the exchange cannot deadlock.
+ * <p>
+ * Usage: {@code java HaloExchangeWorker HOST PORT}, where {@code HOST:PORT} is the coordinator.
+ */
+public class HaloExchangeWorker {
+
+    private final DataInputStream coordinatorIn;   // Assignment and signals from the coordinator.
+    private final DataOutputStream coordinatorOut; // Address, readiness and result sent to the coordinator.
+    private final Socket coordinator;              // Connection to the coordinator.
+
+    private CellularAutomaton automaton; // The strip and its halos.
+    private int firstRow;                // Row of the whole grid owned at the top of the strip.
+    private int ownedRows;               // Number of rows owned by this worker.
+    private int haloAbove;               // Number of halo rows above the owned rows.
+    private int haloBelow;               // Number of halo rows below the owned rows.
+    private DataInputStream aboveIn;     // Rows from the worker above, or null for the top strip.
+    private DataOutputStream aboveOut;   // Rows to the worker above.
+    private DataInputStream belowIn;     // Rows from the worker below, or null for the bottom strip.
+    private DataOutputStream belowOut;   // Rows to the worker below.
+    private int[] cells;                 // Reused buffer holding a row.
+    private byte[] bytes;                // Reused buffer holding a row as sent.
+    private long exchangeNanos;          // Time spent exchanging halos.
+    private long exchangedBytes;         // Bytes of halo rows sent.
+
+    /**
+     * Main method of a worker.
+     *
+     * @param args The host and port of the coordinator.
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: java HaloExchangeWorker HOST PORT");
+            System.exit(2);
+        }
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            new HaloExchangeWorker(socket).run();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Worker error: " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Constructor for the {@code HaloExchangeWorker} class.
+     *
+     * @param coordinator The connection to the coordinator.
+     * @throws IOException If the connection fails.
+     */
+    HaloExchangeWorker(Socket coordinator) throws IOException {
+        this.coordinator = coordinator;
+        this.coordinatorIn = new DataInputStream(new BufferedInputStream(coordinator.getInputStream()));
+        this.coordinatorOut = new DataOutputStream(new BufferedOutputStream(coordinator.getOutputStream()));
+    }
+
+    /**
+     * Receives the assignment, connects to the neighbors, runs the steps and sends the result.
+     */
+    void run() throws IOException {
+        DataInputStream in = coordinatorIn;
+        DataOutputStream out = coordinatorOut;
+        if (in.readInt() != DistributedRun.MAGIC || in.readInt() != DistributedRun.VERSION) {
+            throw new IOException("Unsupported coordinator protocol");
+        }
+        int index = in.readInt();
+        int workers = in.readInt();
+        firstRow = in.readInt();
+        ownedRows = in.readInt() - firstRow;
+        int halo = in.readInt();
+        int interval = in.readInt();
+        int steps = in.readInt();
+        Properties options = new Properties();
+        options.load(new StringReader(in.readUTF()));
+
+        haloAbove = (index > 0) ? halo : 0;
+        haloBelow = (index < workers - 1) ? halo : 0;
+        automaton = CellularAutomatonLauncher.create(options, firstRow - haloAbove, haloAbove + ownedRows + haloBelow);
+        CellularAutomatonLauncher.configure(automaton, options);
+        cells = new int[automaton.getCols()];
+        bytes = new byte[automaton.getCols()];
+
+        try (ServerSocket belowServer = (haloBelow > 0) ? new ServerSocket(0, 1, coordinator.getLocalAddress()) : null) {
+            out.writeUTF(coordinator.getLocalAddress().getHostAddress());
+            out.writeInt((belowServer != null) ? belowServer.getLocalPort() : -1);
+            out.flush();
+            if (haloAbove > 0) {
+                Socket above = new Socket(in.readUTF(), in.readInt());
+                above.setTcpNoDelay(true);
+                aboveIn = new DataInputStream(new BufferedInputStream(above.getInputStream(), 1 << 16));
+                aboveOut = new DataOutputStream(new BufferedOutputStream(above.getOutputStream(), 1 << 16));
+            }
+            if (belowServer != null) {
+                Socket below = belowServer.accept();
+                below.setTcpNoDelay(true);
+                belowIn = new DataInputStream(new BufferedInputStream(below.getInputStream(), 1 << 16));
+                belowOut = new DataOutputStream(new BufferedOutputStream(below.getOutputStream(), 1 << 16));
+            }
+        }
+        out.writeInt(DistributedRun.READY);
+        out.flush();
+        if (in.readInt() != DistributedRun.GO) {
+            throw new IOException("Unexpected signal from the coordinator");
+        }
+
+        long computeNanos = 0;
+        int remaining = steps;
+        while (remaining > 0) {
+            int generations = Math.min(interval, remaining);
+            long start = System.nanoTime();
+            for (int g = 0; g < generations; g++) {
+                automaton.step();
+            }
+            computeNanos += System.nanoTime() - start;
+            remaining -= generations;
+            if (remaining > 0) {
+                exchangeHalos(halo);
+            }
+        }
+        sendResult(computeNanos);
+    }
+
+    /**
+     * Replaces the halos with the current rows of the neighbors: rows flow down, then up.
+     */
+    private void exchangeHalos(int halo) throws IOException {
+        long start = System.nanoTime();
+        if (belowOut != null) {
+            sendRows(belowOut, haloAbove + ownedRows - halo, halo); // The last owned rows.
+        }
+        if (aboveIn != null) {
+            receiveRows(aboveIn, 0, halo);
+        }
+        if (aboveOut != null) {
+            sendRows(aboveOut, haloAbove, halo); // The first owned rows.
+        }
+        if (belowIn != null) {
+            receiveRows(belowIn, haloAbove + ownedRows, halo);
+        }
+        exchangeNanos += System.nanoTime() - start;
+    }
+
+    private void sendRows(DataOutputStream out, int fromRow, int count) throws IOException {
+        for (int i = fromRow; i < fromRow + count; i++) {
+            automaton.getRow(i, cells);
+            for (int j = 0; j < cells.length; j++) {
+                bytes[j] = (byte) cells[j];
+            }
+            out.write(bytes);
+        }
+        out.flush();
+        exchangedBytes += (long) count * bytes.length;
+    }
+
+    private void receiveRows(DataInputStream in, int fromRow, int count) throws IOException {
+        for (int i = fromRow; i < fromRow + count; i++) {
+            in.readFully(bytes);
+            for (int j = 0; j < cells.length; j++) {
+                cells[j] = bytes[j] & 0xFF;
+            }
+            automaton.setRow(i, cells);
+        }
+    }
+
+    /**
+     * Sends the generation, the hash and state counts of the owned rows, and the timings.
+     */
+    private void sendResult(long computeNanos) throws IOException {
+        long[] counts = new long[automaton.getStateCount()];
+        long hash = 0;
+        for (int i = 0; i < ownedRows; i++) {
+            automaton.getRow(haloAbove + i, cells);
+            for (int j = 0; j < cells.length; j++) {
+                counts[cells[j]]++;
+                hash ^= CellularAutomaton.zobristKey(firstRow + i, j, cells[j]); // Keyed by the row of the whole grid.
+            }
+        }
+        DataOutputStream out = coordinatorOut;
+        out.writeLong(automaton.getGeneration());
+        out.writeLong(hash);
+        out.writeInt(counts.length);
+        for (long count : counts) {
+            out.writeLong(count);
+        }
+        out.writeLong(computeNanos);
+        out.writeLong(exchangeNanos);
+        out.writeLong(exchangedBytes);
+        out.flush();
+    }
+}
@@ -0,0 +1,684 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Class representing Conway's "Game of Life" computed with the Hashlife algorithm.
+ * The plane is stored as a quadtree whose nodes are canonicalized in a hash table,
+ * so identical regions are shared, and the future of every node is memoized.
+ * This allows advancing huge, mostly empty or periodic patterns by {@code 2^k}
+ * generations in time that depends on the pattern's structure rather than its area.
+ *
+ * <p>Hashlife evolves the pattern on an unbounded plane. The {@code rows x cols} window
+ * at the origin is what is imported, exported and printed; the results are identical to
+ * {@link GameOfLife} as long as the pattern does not reach the edges of that window.
+ * Past that point they diverge: cells leaving the window keep evolving and may come back,
+ * where a grid with a {@link BoundaryCondition#DEAD} boundary would have lost them.</p>
+ */
+public class HashlifeGameOfLife extends CellularAutomaton {
+
+    /**
+     * Default maximum number of nodes kept in the node table before it is collected.
+     */
+    public static final int DEFAULT_MAX_NODES = 1 << 22;
+
+    private final int rows;       // Number of rows of the window at the origin.
+    private final int cols;       // Number of columns of the window at the origin.
+    private final NodeTable table; // Canonical nodes and their memoized results.
+
+    private Node root;            // Quadtree covering the whole pattern.
+    private long originRow;       // Row of the top-left corner of the root.
+    private long originCol;       // Column of the top-left corner of the root.
+
+    /**
+     * Constructor for the {@code HashlifeGameOfLife} class.
+     *
+     * @param rows The number of rows of the window.
+     * @param cols The number of columns of the window.
+     */
+    public HashlifeGameOfLife(int rows, int cols) {
+        this(rows, cols, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Constructor for the {@code HashlifeGameOfLife} class with a bounded node table.
+     * When the table holds more than {@code maxNodes} nodes, the nodes that are not part
+     * of the current pattern and all memoized results are evicted, between steps or during
+     * a step that fills the table. A collection keeping more than half of the limit doubles it,
+     * since collecting that pattern again would free too little to be worth the recomputation.
+     *
+     * @param rows     The number of rows of the window.
+     * @param cols     The number of columns of the window.
+     * @param maxNodes The initial maximum number of nodes.
+     */
+    public HashlifeGameOfLife(int rows, int cols, int maxNodes) {
+        super(); // The cells are kept in the quadtree only.
+        this.rows = rows;
+        this.cols = cols;
+        this.table = new NodeTable(maxNodes);
+        this.root = table.empty(levelFor(rows, cols));
+    }
+
+    /**
+     * Randomly initializes the window.
+     * Each cell is randomly assigned a state of 0 (dead) or 1 (alive).
+     */
+    @Override
+    public void initializeRandomState() {
+        root = build(levelFor(rows, cols), 0, 0, rows, cols, (row, col) -> (initialRandom(row, col) < 0.5) ? 0 : 1);
+        originRow = 0;
+        originCol = 0;
+    }
+
+    /**
+     * Replaces the pattern with the cells of an {@code int[][]} grid placed at the origin.
+     *
+     * @param grid The grid to import; non-zero cells are alive.
+     */
+    public void importState(int[][] grid) {
+        int gridCols = (grid.length > 0) ? grid[0].length : 0;
+        root = build(levelFor(grid.length, gridCols), 0, 0, grid.length, gridCols, (row, col) -> grid[row][col]);
+        originRow = 0;
+        originCol = 0;
+    }
+
+    /**
+     * Exports the window at the origin to a new {@code int[][]} grid.
+     *
+     * @return A {@code rows x cols} grid with 1 for alive cells and 0 for dead cells.
+     */
+    public int[][] exportState() {
+        int[][] grid = new int[rows][cols];
+        export(root, originRow, originCol, grid);
+        return grid;
+    }
+
+    /**
+     * Evolves the "Game of Life" simulation over a specified number of steps.
+     *
+     * @param numSteps The number of steps to evolve the simulation.
+     */
+    @Override
+    public void evolve(int numSteps) {
+        run(numSteps, new StatePrinter(true), 1); // Print the step number and state before each step.
+    }
+
+    /**
+     * Advances the pattern by one generation.
+     */
+    @Override
+    protected void applyRules() {
+        advancePattern(0);
+    }
+
+    /**
+     * Returns whether the next generation only depends on the cells of the window,
+     * which is not the case: cells outside the window take part in the evolution.
+     *
+     * @return {@code false}.
+     */
+    @Override
+    protected boolean isDeterministic() {
+        return false;
+    }
+
+    /**
+     * Advances the pattern by {@code 2^log2Steps} generations at once.
+     *
+     * @param log2Steps The base-2 logarithm of the number of generations.
+     */
+    public void advance(int log2Steps) {
+        if (log2Steps < 0 || log2Steps > 60) {
+            throw new IllegalArgumentException("Step exponent out of range: " + log2Steps);
+        }
+        advancePattern(log2Steps);
+        generation += 1L << log2Steps;
+    }
+
+    /**
+     * Returns the number of live cells of the whole pattern, including cells outside the window.
+     *
+     * @return The population of the pattern.
+     */
+    public long getPopulation() {
+        return root.population;
+    }
+
+    /**
+     * Returns the number of nodes currently held by the node table.
+     *
+     * @return The number of canonical nodes.
+     */
+    public int getNodeCount() {
+        return table.size;
+    }
+
+    /**
+     * Returns the number of nodes above which the node table is collected.
+     * It starts at the {@code maxNodes} of the constructor and doubles whenever a collection
+     * keeps more than half of it.
+     *
+     * @return The current node limit.
+     */
+    public int getNodeLimit() {
+        return table.limit;
+    }
+
+    /**
+     * Advances the root by {@code 2^log2Steps} generations.
+     * The root is first expanded until the pattern lies in its central half and it is
+     * large enough for the step, then expanded once more so nothing can escape the result.
+     */
+    private void advancePattern(int log2Steps) {
+        table.setStepLog2(log2Steps);
+        table.collectIfFull(root);
+        while (root.level < log2Steps + 2 || !isPadded(root)) {
+            expand();
+        }
+        expand();
+        long quarter = 1L << (root.level - 2);
+        root = table.advance(root);
+        originRow += quarter;
+        originCol += quarter;
+    }
+
+    /**
+     * Checks whether all live cells of a node lie in its central half.
+     */
+    private static boolean isPadded(Node node) {
+        return node.level >= 3
+                && node.population == node.nw.se.se.population + node.ne.sw.sw.population
+                        + node.sw.ne.ne.population + node.se.nw.nw.population;
+    }
+
+    /**
+     * Doubles the size of the root, keeping the pattern centered.
+     */
+    private void expand() {
+        Node e = table.empty(root.level - 1);
+        long half = 1L << (root.level - 1);
+        root = table.join(
+                table.join(e, e, e, root.nw),
+                table.join(e, e, root.ne, e),
+                table.join(e, root.sw, e, e),
+                table.join(root.se, e, e, e));
+        originRow -= half;
+        originCol -= half;
+    }
+
+    /**
+     * Source of cell states used to build a quadtree.
+     */
+    @FunctionalInterface
+    private interface CellSource {
+        int get(int row, int col);
+    }
+
+    /**
+     * Builds the node of a given level whose top-left corner is at ({@code row}, {@code col}).
+     * Cells outside the {@code height x width} source are dead, so regions beyond it
+     * become shared empty nodes.
+     */
+    private Node build(int level, long row, long col, int height, int width, CellSource source) {
+        if (row >= height || col >= width) {
+            return table.empty(level);
+        }
+        if (level == 0) {
+            return (source.get((int) row, (int) col) != 0) ? NodeTable.ALIVE : NodeTable.DEAD;
+        }
+        long half = 1L << (level - 1);
+        return table.join(
+                build(level - 1, row, col, height, width, source),
+                build(level - 1, row, col + half, height, width, source),
+                build(level - 1, row + half, col, height, width, source),
+                build(level - 1, row + half, col + half, height, width, source));
+    }
+
+    /**
+     * Copies the live cells of a node into the window.
+     */
+    private void export(Node node, long row, long col, int[][] grid) {
+        long size = 1L << node.level;
+        if (node.population == 0 || row >= rows || col >= cols || row + size <= 0 || col + size <= 0) {
+            return; // Nothing alive in the part of the window covered by this node.
+        }
+        if (node.level == 0) {
+            grid[(int) row][(int) col] = 1;
+            return;
+        }
+        long half = size >> 1;
+        export(node.nw, row, col, grid);
+        export(node.ne, row, col + half, grid);
+        export(node.sw, row + half, col, grid);
+        export(node.se, row + half, col + half, grid);
+    }
+
+    /**
+     * Returns the level of the smallest square node covering a {@code rows x cols} window.
+     */
+    private static int levelFor(int rows, int cols) {
+        int level = 3; // Hashlife needs at least 8x8 nodes.
+        while ((1L << level) < Math.max(rows, cols)) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Returns the number of rows of the window.
+     *
+     * @return The number of rows.
+     */
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the window.
+     *
+     * @return The number of columns.
+     */
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the number of states a cell can take, which is 2 (dead or alive).
+     *
+     * @return 2.
+     */
+    @Override
+    public int getStateCount() {
+        return 2;
+    }
+
+    /**
+     * Returns the state of a single cell.
+     *
+     * @param row The row index of the cell.
+     * @param col The column index of the cell.
+     * @return 1 if the cell is alive, otherwise 0.
+     */
+    @Override
+    public int getCell(int row, int col) {
+        long r = row - originRow;
+        long c = col - originCol;
+        long size = 1L << root.level;
+        if (r < 0 || c < 0 || r >= size || c >= size) {
+            return 0; // Outside the root everything is dead.
+        }
+        Node node = root;
+        while (node.level > 0) {
+            long half = 1L << (node.level - 1);
+            if (r < half) {
+                node = (c < half) ? node.nw : node.ne;
+            } else {
+                node = (c < half) ? node.sw : node.se;
+            }
+            r &= half - 1;
+            c &= half - 1;
+        }
+        return (int) node.population;
+    }
+
+    /**
+     * Sets the state of a single cell, rebuilding the nodes on its path.
+     *
+     * @param row   The row index of the cell.
+     * @param col   The column index of the cell.
+     * @param value 1 to make the cell alive, 0 to make it dead.
+     */
+    @Override
+    public void setCell(int row, int col, int value) {
+        while (row < originRow || col < originCol
+                || row - originRow >= (1L << root.level) || col - originCol >= (1L << root.level)) {
+            expand();
+        }
+        root = set(root, row - originRow, col - originCol, value != 0);
+    }
+
+    /**
+     * Returns a copy of a node with one cell changed.
+     */
+    private Node set(Node node, long r, long c, boolean alive) {
+        if (node.level == 0) {
+            return alive ? NodeTable.ALIVE : NodeTable.DEAD;
+        }
+        long half = 1L << (node.level - 1);
+        long rr = r & (half - 1);
+        long cc = c & (half - 1);
+        if (r < half) {
+            return (c < half)
+                    ? table.join(set(node.nw, rr, cc, alive), node.ne, node.sw, node.se)
+                    : table.join(node.nw, set(node.ne, rr, cc, alive), node.sw, node.se);
+        }
+        return (c < half)
+                ? table.join(node.nw, node.ne, set(node.sw, rr, cc, alive), node.se)
+                : table.join(node.nw, node.ne, node.sw, set(node.se, rr, cc, alive));
+    }
+
+    /**
+     * Writes the window of the "Game of Life" grid.
+     * Uses "+" to represent alive cells and "-" for dead cells.
+     *
+     * @param out The writer receiving the text of the grid.
+     * @throws IOException If the writer fails.
+     */
+    @Override
+    public void writeState(Writer out) throws IOException {
+        for (int[] row : exportState()) {
+            for (int cell : row) {
+                out.write((cell == 1) ? "+ " : "- "); // "+" for alive, "-" for dead.
+            }
+            out.write(System.lineSeparator()); // Newline for the next row.
+        }
+        out.write(System.lineSeparator()); // Extra newline for better readability between steps.
+    }
+
+    /**
+     * Quadtree node. A node of level {@code k} covers a {@code 2^k x 2^k} square;
+     * level 0 nodes are single cells. Nodes are immutable apart from the memoized result.
+     */
+    private static final class Node {
+        final Node nw;
+        final Node ne;
+        final Node sw;
+        final Node se;
+        final int level;
+        final long population;
+        final int hash;
+
+        Node chain;   // Next node in the same bucket of the node table.
+        Node result;  // Central half advanced by 2^min(resultLog2, level - 2) generations.
+        int resultLog2; // Step exponent the result was computed for.
+
+        Node(Node nw, Node ne, Node sw, Node se, int level, long population, int hash) {
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.level = level;
+            this.population = population;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Hash table holding the canonical node for every distinct (nw, ne, sw, se) tuple,
+     * together with the computation of memoized results.
+     */
+    private static final class NodeTable {
+        static final Node DEAD = new Node(null, null, null, null, 0, 0, 0);
+        static final Node ALIVE = new Node(null, null, null, null, 0, 1, 1);
+
+        private Node[] buckets = new Node[1 << 10];
+        private Node[] empties = new Node[64];
+        private int size;
+        private int limit;       // Number of nodes above which the table is collected.
+        private int stepLog2 = -1;
+        private Node advancing;  // Root being advanced, kept by collections during the step, or null.
+
+        NodeTable(int maxNodes) {
+            this.limit = maxNodes;
+            empties[0] = DEAD;
+        }
+
+        /**
+         * Returns the canonical node with the given children.
+         */
+        Node join(Node nw, Node ne, Node sw, Node se) {
+            int hash = hash(nw, ne, sw, se);
+            int index = hash & (buckets.length - 1);
+            for (Node n = buckets[index]; n != null; n = n.chain) {
+                if (n.nw == nw && n.ne == ne && n.sw == sw && n.se == se) {
+                    return n;
+                }
+            }
+            Node node = new Node(nw, ne, sw, se, nw.level + 1,
+                    nw.population + ne.population + sw.population + se.population, hash);
+            insert(node);
+            return node;
+        }
+
+        /**
+         * Returns the canonical empty node of a level.
+         */
+        Node empty(int level) {
+            if (empties[level] == null) {
+                Node child = empty(level - 1);
+                empties[level] = join(child, child, child, child);
+            }
+            return empties[level];
+        }
+
+        /**
+         * Selects the number of generations computed by {@link #successor(Node)}.
+         * Memoized results are only valid for one step size, so they are dropped on change.
+         */
+        void setStepLog2(int log2) {
+            if (log2 == stepLog2) {
+                return;
+            }
+            for (Node bucket : buckets) {
+                for (Node n = bucket; n != null; n = n.chain) {
+                    n.result = null;
+                }
+            }
+            stepLog2 = log2;
+        }
+
+        /**
+         * Collects the table, as {@link #collect(Node)} describes, once it holds more than
+         * the node limit. The limit doubles when the collection
+         * keeps more than half of it: the pattern then needs a larger table, and collecting it
+         * again after a few nodes would spend the step recomputing evicted results.
+         */
+        void collectIfFull(Node root) {
+            if (size <= limit) {
+                return;
+            }
+            collect(root);
+            if (size > limit >> 1) {
+                limit = (int) Math.min(Integer.MAX_VALUE, 2L * limit);
+            }
+        }
+
+        /**
+         * Evicts every node not reachable from {@code root}. Between steps the memoized results
+         * are evicted as well; during a step, the results computed so far and the nodes they
+         * reach are kept, so the step does not start over. Nodes of the step in progress that are
+         * evicted stay valid: they are only no longer shared, and a later join may create an
+         * equal node next to them.
+         */
+        private void collect(Node root) {
+            Node[] old = buckets;
+            buckets = new Node[old.length];
+            size = 0;
+            if (advancing == null) {
+                for (Node bucket : old) {
+                    for (Node n = bucket; n != null; n = n.chain) {
+                        n.result = null;
+                    }
+                }
+            }
+            for (int level = 1; level < empties.length; level++) {
+                if (empties[level] != null) {
+                    keep(empties[level]);
+                }
+            }
+            keep(root);
+        }
+
+        /**
+         * Re-inserts a node, its descendants and its memoized result into the table.
+         */
+        private void keep(Node node) {
+            if (node.level == 0 || contains(node)) {
+                return;
+            }
+            keep(node.nw);
+            keep(node.ne);
+            keep(node.sw);
+            keep(node.se);
+            insert(node);
+            if (node.result != null && node.resultLog2 == stepLog2) {
+                keep(node.result);
+            }
+        }
+
+        private boolean contains(Node node) {
+            for (Node n = buckets[node.hash & (buckets.length - 1)]; n != null; n = n.chain) {
+                if (n == node) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void insert(Node node) {
+            int index = node.hash & (buckets.length - 1);
+            node.chain = buckets[index];
+            buckets[index] = node;
+            if (++size > buckets.length - (buckets.length >> 2)) {
+                resize();
+            }
+        }
+
+        private void resize() {
+            Node[] old = buckets;
+            buckets = new Node[old.length << 1];
+            for (Node bucket : old) {
+                Node n = bucket;
+                while (n != null) {
+                    Node next = n.chain;
+                    int index = n.hash & (buckets.length - 1);
+                    n.chain = buckets[index];
+                    buckets[index] = n;
+                    n = next;
+                }
+            }
+        }
+
+        private static int hash(Node nw, Node ne, Node sw, Node se) {
+            int h = ((nw.hash * 31 + ne.hash) * 31 + sw.hash) * 31 + se.hash;
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * Returns the central half of the root advanced by {@code 2^min(stepLog2, k - 2)} generations,
+         * collecting the table during the step if it fills up.
+         */
+        Node advance(Node root) {
+            advancing = root;
+            try {
+                return successor(root);
+            } finally {
+                advancing = null;
+            }
+        }
+
+        /**
+         * Returns the central half of a node (level {@code k >= 2}) advanced by
+         * {@code 2^min(stepLog2, k - 2)} generations.
+         */
+        private Node successor(Node node) {
+            // Nodes evicted during a step are not reset by setStepLog2, hence the check of the step.
+            if (node.result != null && node.resultLog2 == stepLog2) {
+                return node.result;
+            }
+            if (advancing != null) {
+                collectIfFull(advancing); // The nodes of the step in progress are held by the recursion.
+            }
+            Node result;
+            if (node.population == 0) {
+                result = empty(node.level - 1);
+            } else if (node.level == 2) {
+                result = baseCase(node);
+            } else {
+                result = recurse(node);
+            }
+            node.result = result;
+            node.resultLog2 = stepLog2;
+            return result;
+        }
+
+        /**
+         * Splits a node into nine overlapping sub-squares, advances them (at full speed)
+         * or takes their centers (when a smaller step is requested), then advances the
+         * four resulting quadrants once more.
+         */
+        private Node recurse(Node n) {
+            Node n00 = n.nw;
+            Node n01 = horizontal(n.nw, n.ne);
+            Node n02 = n.ne;
+            Node n10 = vertical(n.nw, n.sw);
+            Node n11 = center(n);
+            Node n12 = vertical(n.ne, n.se);
+            Node n20 = n.sw;
+            Node n21 = horizontal(n.sw, n.se);
+            Node n22 = n.se;
+
+            boolean fullSpeed = stepLog2 >= n.level - 2;
+            Node r00 = fullSpeed ? successor(n00) : center(n00);
+            Node r01 = fullSpeed ? successor(n01) : center(n01);
+            Node r02 = fullSpeed ? successor(n02) : center(n02);
+            Node r10 = fullSpeed ? successor(n10) : center(n10);
+            Node r11 = fullSpeed ? successor(n11) : center(n11);
+            Node r12 = fullSpeed ? successor(n12) : center(n12);
+            Node r20 = fullSpeed ? successor(n20) : center(n20);
+            Node r21 = fullSpeed ? successor(n21) : center(n21);
+            Node r22 = fullSpeed ? successor(n22) : center(n22);
+
+            return join(
+                    successor(join(r00, r01, r10, r11)),
+                    successor(join(r01, r02, r11, r12)),
+                    successor(join(r10, r11, r20, r21)),
+                    successor(join(r11, r12, r21, r22)));
+        }
+
+        private Node center(Node n) {
+            return join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+        }
+
+        private Node horizontal(Node w, Node e) {
+            return join(w.ne, e.nw, w.se, e.sw);
+        }
+
+        private Node vertical(Node n, Node s) {
+            return join(n.sw, n.se, s.nw, s.ne);
+        }
+
+        /**
+         * Computes one generation of the central 2x2 cells of a 4x4 node.
+         */
+        private Node baseCase(Node n) {
+            int bits = 0; // Bit (4 * row + col) holds cell (row, col) of the 4x4 square.
+            for (int row = 0; row < 4; row++) {
+                for (int col = 0; col < 4; col++) {
+                    Node quadrant = (row < 2) ? ((col < 2) ? n.nw : n.ne) : ((col < 2) ? n.sw : n.se);
+                    Node cell = ((row & 1) == 0)
+                            ? (((col & 1) == 0) ? quadrant.nw : quadrant.ne)
+                            : (((col & 1) == 0) ? quadrant.sw : quadrant.se);
+                    bits |= (int) cell.population << (4 * row + col);
+                }
+            }
+            return join(lifeRule(bits, 1, 1), lifeRule(bits, 1, 2),
+                    lifeRule(bits, 2, 1), lifeRule(bits, 2, 2));
+        }
+
+        private static Node lifeRule(int bits, int row, int col) {
+            int neighbors = 0;
+            for (int i = row - 1; i <= row + 1; i++) {
+                for (int j = col - 1; j <= col + 1; j++) {
+                    if (i != row || j != col) {
+                        neighbors += (bits >> (4 * i + j)) & 1;
+                    }
+                }
+            }
+            boolean alive = ((bits >> (4 * row + col)) & 1) == 1;
+            return (neighbors == 3 || (alive && neighbors == 2)) ? ALIVE : DEAD;
+        }
+    }
+}
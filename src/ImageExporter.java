@@ -0,0 +1,604 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Observer exporting the observed generations of a cellular automaton as indexed-colour images:
+ * one PNG file per generation, or the frames of one animated GIF.
+ * <p>
+ * The stepping thread only renders the cells into a buffer of palette indices, reused from frame
+ * to frame, and hands it to a bounded queue; a background thread compresses the pixels and writes
+ * the files. When the writer falls behind, the {@link BackpressurePolicy} decides
+ * whether the stepping thread waits or frames are dropped. Rendering runs on the automaton's row
+ * bands, so it uses the threads of {@link CellularAutomaton#setParallelism(int)}.
+ * <p>
+ * With a block size of 1, every cell is a pixel whose index is its state. Larger blocks downsample
+ * boards too large to look at: every pixel covers a square block of cells and shows the density
+ * of its non-zero cells, in the colour of the most frequent non-zero state, blended with the
+ * colour of state 0. A 65536 x 65536 board with a block size of 64 gives 1024 x 1024 images.
+ */
+public class ImageExporter extends AsyncFrameSink {
+
+    /**
+     * The image formats of the exporter.
+     */
+    public enum Format {
+        PNG, // One PNG file per generation, named generation-NNNNNNNNN.png, in a directory.
+        GIF  // One animated GIF file, one frame per generation, looping forever.
+    }
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int MAX_GIF_SIDE = 0xFFFF; // GIF dimensions are unsigned 16-bit integers.
+    private static final int GIF_MAX_CODE = 4096;   // Size of the GIF LZW code table.
+
+    private final Path target;                        // Directory of the PNG files, or GIF file.
+    private final Format format;                      // Format of the images.
+    private final int blockSize;                      // Side of the square block of cells of a pixel.
+    private final OutputStream gif;                   // The GIF file, or null for PNG files.
+
+    private int[] colors;               // RGB colour of each state, or null for the defaults.
+    private volatile int frameDelay = 10; // Delay between two GIF frames, in hundredths of a second.
+    private int rows = -1;              // Dimensions of the exported grid, set by the first frame.
+    private int cols = -1;
+    private int states;                 // Number of states of the exported automaton.
+    private int levels;                 // Number of density levels of each non-zero state, when downsampling.
+    private int width;                  // Dimensions of the images.
+    private int height;
+    private int[] palette;              // RGB colour of each palette index.
+    private int bitDepth;               // Bits per pixel of the images: 1, 2, 4 or 8.
+    private ImageEncoder encoder;       // Encoder of the images, created by the writer for the first frame.
+
+    private CellularAutomaton rendered; // Automaton being rendered by the row band task.
+    private byte[] renderedPixels;      // Buffer being filled by the row band task.
+    private final CellularAutomaton.RowBandTask pixelRenderer = this::renderRows; // Band task reused every frame.
+    private final ThreadLocal<RenderBuffers> renderBuffers = ThreadLocal.withInitial(RenderBuffers::new); // Per thread.
+
+    /**
+     * Constructor for the {@code ImageExporter} class with a queue of 4 frames. When the queue
+     * is full, the stepping thread waits for the writer at most
+     * {@link AsyncFrameSink#DEFAULT_MAX_BLOCK_MILLIS} milliseconds, then drops the frame.
+     *
+     * @param target    The directory receiving the PNG files, created if needed, or the GIF file,
+     *                  replaced if it exists.
+     * @param format    The format of the images.
+     * @param blockSize The side of the square block of cells of each pixel, 1 for a pixel per cell.
+     * @throws IOException If the directory or file cannot be created.
+     */
+    public ImageExporter(Path target, Format format, int blockSize) throws IOException {
+        this(target, format, blockSize, 4, BackpressurePolicy.BLOCK, DEFAULT_MAX_BLOCK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor for the {@code ImageExporter} class.
+     *
+     * @param target        The directory receiving the PNG files, created if needed, or the GIF file,
+     *                      replaced if it exists.
+     * @param format        The format of the images.
+     * @param blockSize     The side of the square block of cells of each pixel, 1 for a pixel per cell.
+     * @param queueCapacity The maximum number of frames waiting for the writer.
+     * @param policy        What to do when the queue is full.
+     * @param maxBlock      The longest time the {@code BLOCK} policy waits for the writer.
+     * @param unit          The unit of {@code maxBlock}.
+     * @throws IOException If the directory or file cannot be created.
+     */
+    public ImageExporter(Path target, Format format, int blockSize, int queueCapacity,
+                         BackpressurePolicy policy, long maxBlock, TimeUnit unit) throws IOException {
+        super("image export", queueCapacity, policy, maxBlock, unit);
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least 1: " + blockSize);
+        }
+        this.target = target;
+        this.format = format;
+        this.blockSize = blockSize;
+        if (format == Format.GIF) {
+            this.gif = new BufferedOutputStream(Files.newOutputStream(target), 1 << 16);
+        } else {
+            Files.createDirectories(target);
+            this.gif = null;
+        }
+        start();
+    }
+
+    /**
+     * Replaces the default colours of the states: black for state 0 and white for state 1, then
+     * shades of grey, or soil, green and orange for the empty cells, trees and fires of a
+     * {@link ForestFire}. Must be called before the first frame.
+     *
+     * @param rgb The colour of each state, as {@code 0xRRGGBB}; missing states keep their default.
+     */
+    public void setColors(int... rgb) {
+        if (rows >= 0) {
+            throw new IllegalStateException("The palette is fixed by the first frame");
+        }
+        this.colors = rgb.clone();
+    }
+
+    /**
+     * Changes the delay between two frames of an animated GIF.
+     *
+     * @param millis The delay, in milliseconds, rounded to hundredths of a second (default 100).
+     */
+    public void setFrameDelay(int millis) {
+        this.frameDelay = Math.max(0, Math.min(0xFFFF, (millis + 5) / 10));
+    }
+
+    /**
+     * Renders the cells of the automaton into palette indices, reusing a buffer released by the writer.
+     *
+     * @param automaton The observed cellular automaton.
+     * @param pixels    A pixel buffer released by the writer, or {@code null}.
+     * @return The pixels, one palette index per byte in row-major order.
+     */
+    @Override
+    protected byte[] render(CellularAutomaton automaton, byte[] pixels) {
+        if (rows < 0) {
+            definePalette(automaton);
+        } else if (automaton.getRows() != rows || automaton.getCols() != cols) {
+            throw new IllegalArgumentException("Export of a " + rows + "x" + cols + " grid cannot receive a "
+                    + automaton.getRows() + "x" + automaton.getCols() + " grid");
+        }
+        if (pixels == null) {
+            pixels = new byte[width * height];
+        }
+        rendered = automaton;
+        renderedPixels = pixels;
+        try {
+            automaton.forEachRowBand(height, pixelRenderer);
+        } finally {
+            rendered = null;
+            renderedPixels = null;
+        }
+        return pixels;
+    }
+
+    /**
+     * Fixes the dimensions and palette of the images from the first exported automaton.
+     */
+    private void definePalette(CellularAutomaton automaton) {
+        int stateCount = automaton.getStateCount();
+        if (stateCount > 256) {
+            throw new IllegalArgumentException("Images index at most 256 states: " + stateCount);
+        }
+        long imageWidth = (automaton.getCols() + blockSize - 1) / blockSize;
+        long imageHeight = (automaton.getRows() + blockSize - 1) / blockSize;
+        if (imageWidth * imageHeight > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("A " + imageWidth + "x" + imageHeight
+                    + " image is too large; use a larger block size");
+        }
+        if (format == Format.GIF && (imageWidth > MAX_GIF_SIDE || imageHeight > MAX_GIF_SIDE)) {
+            throw new IllegalArgumentException("GIF images are at most " + MAX_GIF_SIDE + " pixels wide and high: "
+                    + imageWidth + "x" + imageHeight + "; use a larger block size");
+        }
+        int[] stateColors = defaultColors(automaton, stateCount);
+        if (colors != null) {
+            System.arraycopy(colors, 0, stateColors, 0, Math.min(colors.length, stateCount));
+        }
+        if (blockSize == 1) {
+            palette = stateColors;
+        } else {
+            // Index 0 for blocks without non-zero cells, then the density levels of each non-zero state.
+            levels = (stateCount > 1) ? 255 / (stateCount - 1) : 1;
+            palette = new int[1 + (stateCount - 1) * levels];
+            palette[0] = stateColors[0];
+            for (int s = 1; s < stateCount; s++) {
+                for (int level = 0; level < levels; level++) {
+                    palette[1 + (s - 1) * levels + level] = blend(stateColors[0], stateColors[s], (level + 1) / (double) levels);
+                }
+            }
+        }
+        bitDepth = (palette.length <= 2) ? 1 : (palette.length <= 4) ? 2 : (palette.length <= 16) ? 4 : 8;
+        states = stateCount;
+        width = (int) imageWidth;
+        height = (int) imageHeight;
+        rows = automaton.getRows();
+        cols = automaton.getCols();
+    }
+
+    /**
+     * Returns the default colour of each state of an automaton.
+     */
+    private static int[] defaultColors(CellularAutomaton automaton, int stateCount) {
+        int[] rgb = new int[stateCount];
+        if (automaton instanceof ForestFire && stateCount == 3) {
+            rgb[ForestFire.EMPTY] = 0x2B1D0E;   // Soil.
+            rgb[ForestFire.TREE] = 0x2E8B2E;    // Green.
+            rgb[ForestFire.BURNING] = 0xFF7A00; // Orange.
+            return rgb;
+        }
+        for (int s = 1; s < stateCount; s++) { // White for state 1, darker greys for the next ones.
+            int grey = 255 - 191 * (s - 1) / Math.max(1, stateCount - 2);
+            rgb[s] = grey << 16 | grey << 8 | grey;
+        }
+        return rgb;
+    }
+
+    /**
+     * Returns the colour a given fraction of the way from one colour to another.
+     */
+    private static int blend(int from, int to, double fraction) {
+        int rgb = 0;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            int a = from >>> shift & 0xFF;
+            int b = to >>> shift & 0xFF;
+            rgb |= (int) Math.round(a + (b - a) * fraction) << shift;
+        }
+        return rgb;
+    }
+
+    /**
+     * Renders a band of rows of the image.
+     *
+     * @param fromRow The first row of pixels of the band (inclusive).
+     * @param toRow   The last row of pixels of the band (exclusive).
+     */
+    private void renderRows(int fromRow, int toRow) {
+        CellularAutomaton automaton = rendered;
+        byte[] pixels = renderedPixels;
+        RenderBuffers buffers = renderBuffers.get();
+        buffers.reset(cols, (blockSize == 1) ? 0 : width * states);
+        if (blockSize == 1) {
+            for (int y = fromRow; y < toRow; y++) {
+                readRow(automaton, y, pixels, y * width, buffers);
+            }
+            return;
+        }
+        byte[] cells = buffers.cells;
+        int[] counts = buffers.counts; // Per pixel, the number of cells in each state.
+        for (int y = fromRow; y < toRow; y++) {
+            Arrays.fill(counts, 0);
+            int firstRow = y * blockSize;
+            int lastRow = Math.min(rows, firstRow + blockSize);
+            for (int i = firstRow; i < lastRow; i++) {
+                readRow(automaton, i, cells, 0, buffers);
+                for (int x = 0, j = 0; x < width; x++) {
+                    int base = x * states;
+                    for (int end = Math.min(cols, j + blockSize); j < end; j++) {
+                        counts[base + (cells[j] & 0xFF)]++;
+                    }
+                }
+            }
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int base = x * states;
+                int blockCells = (lastRow - firstRow) * (Math.min(cols, (x + 1) * blockSize) - x * blockSize);
+                int live = blockCells - counts[base];
+                int dominant = 1; // The most frequent non-zero state.
+                for (int s = 2; s < states; s++) {
+                    if (counts[base + s] > counts[base + dominant]) {
+                        dominant = s;
+                    }
+                }
+                int level = (live == 0) ? 0 : (int) (((long) live * levels - 1) / blockCells);
+                pixels[offset + x] = (byte) ((live == 0) ? 0 : 1 + (dominant - 1) * levels + level);
+            }
+        }
+    }
+
+    /**
+     * Copies the states of a row of cells into a byte array, straight from the grid when the
+     * automaton keeps its cells in one.
+     */
+    private void readRow(CellularAutomaton automaton, int row, byte[] cells, int offset, RenderBuffers buffers) {
+        if (automaton.state != null) {
+            automaton.state.getRow(row, 0, cells, offset, cols);
+            return;
+        }
+        int[] values = buffers.row; // Engines keeping their own representation.
+        automaton.getRow(row, values);
+        for (int j = 0; j < cols; j++) {
+            cells[offset + j] = (byte) values[j];
+        }
+    }
+
+    /**
+     * Compresses an image and writes it: a PNG file, or the next frame of the GIF.
+     *
+     * @param generation The generation of the image.
+     * @param pixels     The palette indices of the image.
+     * @return The pixel buffer, which the writer no longer needs.
+     * @throws IOException If the image cannot be written.
+     */
+    @Override
+    protected byte[] encode(long generation, byte[] pixels) throws IOException {
+        if (encoder == null) {
+            encoder = new ImageEncoder(width, height, bitDepth, palette); // Published by the queue.
+        }
+        if (format == Format.GIF) {
+            if (getWrittenFrames() == 0) {
+                encoder.writeGifHeader(gif);
+            }
+            encoder.writeGifFrame(gif, pixels, frameDelay);
+        } else {
+            Path file = target.resolve(String.format(Locale.ROOT, "generation-%09d.png", generation));
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+                encoder.writePng(out, pixels);
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Ends the GIF file, if a frame was written to it.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    protected void finish() throws IOException {
+        if (gif != null) {
+            if (getWrittenFrames() > 0) {
+                gif.write(0x3B); // GIF trailer.
+            }
+            gif.flush();
+        }
+    }
+
+    /**
+     * Returns the number of images written so far: PNG files, or frames of the GIF.
+     *
+     * @return The number of exported frames.
+     */
+    public long getExportedFrames() {
+        return getWrittenFrames();
+    }
+
+    /**
+     * Closes the GIF file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    protected void closeOutput() throws IOException {
+        if (gif != null) {
+            gif.close();
+        }
+    }
+
+    /**
+     * Per-thread buffers of the rendering: a row of cells and the per-state counts of a row of pixels.
+     */
+    private static final class RenderBuffers {
+        byte[] cells = new byte[0];
+        int[] row = new int[0];
+        int[] counts = new int[0];
+
+        void reset(int cols, int countCells) {
+            if (cells.length < cols) {
+                cells = new byte[cols];
+                row = new int[cols];
+            }
+            if (counts.length < countCells) {
+                counts = new int[countCells];
+            }
+        }
+    }
+
+    /**
+     * Encoder of indexed-colour PNG images and GIF frames, owned by the writer thread.
+     * Its compression buffers are kept from frame to frame.
+     */
+    static final class ImageEncoder {
+        private final int width;
+        private final int height;
+        private final int bitDepth;
+        private final int[] palette;
+        private final int rowBytes;               // Bytes of a packed PNG row, without its filter byte.
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32 crc = new CRC32();
+        private final byte[] scanlines;           // Filtered PNG rows.
+        private final byte[] compressed = new byte[1 << 16]; // Deflated data of one IDAT chunk.
+
+        private final int[] lzwKeys = new int[1 << 13];   // Open-addressing table of (prefix, pixel) pairs.
+        private final short[] lzwCodes = new short[1 << 13];
+        private final byte[] block = new byte[255];       // GIF data sub-block being filled.
+        private int blockLength;
+        private int bitBuffer;                            // LZW bits not yet written.
+        private int bitCount;
+
+        ImageEncoder(int width, int height, int bitDepth, int[] palette) {
+            this.width = width;
+            this.height = height;
+            this.bitDepth = bitDepth;
+            this.palette = palette;
+            this.rowBytes = (int) (((long) width * bitDepth + 7) / 8);
+            this.scanlines = new byte[Math.multiplyExact(height, rowBytes + 1)];
+        }
+
+        /**
+         * Writes a PNG image: signature, header, palette, deflated rows and end chunks.
+         */
+        void writePng(OutputStream stream, byte[] pixels) throws IOException {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.write(PNG_SIGNATURE);
+            byte[] header = new byte[13];
+            putInt(header, 0, width);
+            putInt(header, 4, height);
+            header[8] = (byte) bitDepth;
+            header[9] = 3; // Indexed colour; compression, filter and interlace methods 0.
+            writeChunk(out, "IHDR", header, header.length);
+            byte[] plte = new byte[palette.length * 3];
+            for (int p = 0; p < palette.length; p++) {
+                plte[3 * p] = (byte) (palette[p] >>> 16);
+                plte[3 * p + 1] = (byte) (palette[p] >>> 8);
+                plte[3 * p + 2] = (byte) palette[p];
+            }
+            writeChunk(out, "PLTE", plte, plte.length);
+
+            int pixelsPerByte = 8 / bitDepth;
+            for (int y = 0, s = 0; y < height; y++) {
+                scanlines[s++] = 0; // Filter type None: the palette indices rarely benefit from prediction.
+                int p = y * width;
+                if (bitDepth == 8) {
+                    System.arraycopy(pixels, p, scanlines, s, width);
+                    s += width;
+                    continue;
+                }
+                for (int x = 0; x < width; x += pixelsPerByte) { // Leftmost pixel in the high bits.
+                    int packed = 0;
+                    for (int k = 0; k < pixelsPerByte; k++) {
+                        packed = packed << bitDepth | ((x + k < width) ? pixels[p + x + k] : 0);
+                    }
+                    scanlines[s++] = (byte) packed;
+                }
+            }
+            deflater.reset();
+            deflater.setInput(scanlines, 0, scanlines.length);
+            deflater.finish();
+            while (!deflater.finished()) {
+                int length = deflater.deflate(compressed);
+                if (length > 0) {
+                    writeChunk(out, "IDAT", compressed, length);
+                }
+            }
+            writeChunk(out, "IEND", compressed, 0);
+            out.flush();
+        }
+
+        private void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+            byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+            out.writeInt(length);
+            out.write(name);
+            out.write(data, 0, length);
+            crc.reset();
+            crc.update(name, 0, name.length);
+            crc.update(data, 0, length);
+            out.writeInt((int) crc.getValue());
+        }
+
+        private static void putInt(byte[] bytes, int offset, int value) {
+            bytes[offset] = (byte) (value >>> 24);
+            bytes[offset + 1] = (byte) (value >>> 16);
+            bytes[offset + 2] = (byte) (value >>> 8);
+            bytes[offset + 3] = (byte) value;
+        }
+
+        /**
+         * Writes the GIF header, the global colour table and the looping extension.
+         */
+        void writeGifHeader(OutputStream out) throws IOException {
+            int tableBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(palette.length - 1));
+            out.write("GIF89a".getBytes(StandardCharsets.US_ASCII));
+            writeShort(out, width);
+            writeShort(out, height);
+            out.write(0x80 | (tableBits - 1) << 4 | (tableBits - 1)); // Global colour table of 2^tableBits colours.
+            out.write(0); // Background colour index.
+            out.write(0); // No aspect ratio.
+            for (int p = 0; p < 1 << tableBits; p++) {
+                int rgb = (p < palette.length) ? palette[p] : 0;
+                out.write(rgb >>> 16);
+                out.write(rgb >>> 8);
+                out.write(rgb);
+            }
+            out.write(new byte[]{0x21, (byte) 0xFF, 0x0B}); // Application extension: loop forever.
+            out.write("NETSCAPE2.0".getBytes(StandardCharsets.US_ASCII));
+            out.write(new byte[]{0x03, 0x01, 0x00, 0x00, 0x00});
+        }
+
+        /**
+         * Writes a GIF frame: its delay, its descriptor and its LZW-compressed pixels.
+         */
+        void writeGifFrame(OutputStream out, byte[] pixels, int delay) throws IOException {
+            out.write(new byte[]{0x21, (byte) 0xF9, 0x04, 0x00}); // Graphic control extension, no disposal.
+            writeShort(out, delay);
+            out.write(0); // No transparent colour.
+            out.write(0);
+            out.write(0x2C); // Image descriptor covering the whole screen, without a local colour table.
+            writeShort(out, 0);
+            writeShort(out, 0);
+            writeShort(out, width);
+            writeShort(out, height);
+            out.write(0);
+            int minCodeSize = Math.max(2, bitDepth);
+            out.write(minCodeSize);
+            compressLzw(out, pixels, minCodeSize);
+            out.write(0); // Block terminator.
+        }
+
+        /**
+         * Compresses the pixels with the variable-length LZW coding of GIF, into data sub-blocks.
+         */
+        private void compressLzw(OutputStream out, byte[] pixels, int minCodeSize) throws IOException {
+            int clearCode = 1 << minCodeSize;
+            int endCode = clearCode + 1;
+            int nextCode = clearCode + 2;
+            int codeSize = minCodeSize + 1;
+            Arrays.fill(lzwKeys, -1);
+            blockLength = 0;
+            bitBuffer = 0;
+            bitCount = 0;
+            writeCode(out, clearCode, codeSize);
+            int length = width * height;
+            int prefix = (length > 0) ? pixels[0] & 0xFF : 0;
+            for (int k = 1; k < length; k++) {
+                int pixel = pixels[k] & 0xFF;
+                int key = prefix << 8 | pixel;
+                int slot = (key * 0x9E3779B1) >>> 19; // 13-bit hash of the pair.
+                while (lzwKeys[slot] != -1 && lzwKeys[slot] != key) {
+                    slot = (slot + 1) & (lzwKeys.length - 1);
+                }
+                if (lzwKeys[slot] == key) {
+                    prefix = lzwCodes[slot]; // The string continues.
+                    continue;
+                }
+                writeCode(out, prefix, codeSize);
+                if (nextCode < GIF_MAX_CODE) {
+                    lzwKeys[slot] = key;
+                    lzwCodes[slot] = (short) nextCode++;
+                    if (nextCode > 1 << codeSize && codeSize < 12) {
+                        codeSize++; // The decoder widens its codes when its table reaches this size.
+                    }
+                } else {
+                    writeCode(out, clearCode, codeSize); // Table full: start over.
+                    Arrays.fill(lzwKeys, -1);
+                    nextCode = clearCode + 2;
+                    codeSize = minCodeSize + 1;
+                }
+                prefix = pixel;
+            }
+            writeCode(out, prefix, codeSize);
+            if (nextCode == 1 << codeSize && codeSize < 12) {
+                codeSize++; // The decoder adds the last string before reading the end code.
+            }
+            writeCode(out, endCode, codeSize);
+            if (bitCount > 0) {
+                writeByte(out, bitBuffer);
+            }
+            if (blockLength > 0) {
+                out.write(blockLength);
+                out.write(block, 0, blockLength);
+            }
+        }
+
+        private void writeCode(OutputStream out, int code, int codeSize) throws IOException {
+            bitBuffer |= code << bitCount; // Codes are packed from the low bits.
+            bitCount += codeSize;
+            while (bitCount >= 8) {
+                writeByte(out, bitBuffer);
+                bitBuffer >>>= 8;
+                bitCount -= 8;
+            }
+        }
+
+        private void writeByte(OutputStream out, int value) throws IOException {
+            block[blockLength++] = (byte) value;
+            if (blockLength == block.length) {
+                out.write(blockLength);
+                out.write(block, 0, blockLength);
+                blockLength = 0;
+            }
+        }
+
+        private static void writeShort(OutputStream out, int value) throws IOException {
+            out.write(value);
+            out.write(value >>> 8);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Grid storing one {@code int} per cell, for rules with any number of states.
+ */
+public class IntGrid extends Grid {
+
+    private final int[] cells; // Row-major cells.
+
+    /**
+     * Constructor for the {@code IntGrid} class.
+     *
+     * @param rows The number of rows in the grid.
+     * @param cols The number of columns in the grid.
+     */
+    public IntGrid(int rows, int cols) {
+        super(rows, cols);
+        this.cells = new int[Math.multiplyExact(rows, cols)];
+    }
+
+    @Override
+    public int get(int row, int col) {
+        return cells[row * cols + col];
+    }
+
+    @Override
+    public void set(int row, int col, int value) {
+        cells[row * cols + col] = value;
+    }
+
+    @Override
+    public void getRow(int row, int[] cells) {
+        System.arraycopy(this.cells, row * cols, cells, 0, cols);
+    }
+
+    @Override
+    public void setRow(int row, int[] cells) {
+        System.arraycopy(cells, 0, this.cells, row * cols, cols);
+    }
+
+    @Override
+    public void copyRows(Grid source, int fromRow, int toRow) {
+        if (!(source instanceof IntGrid)) {
+            super.copyRows(source, fromRow, toRow);
+            return;
+        }
+        checkSameDimensions(source);
+        System.arraycopy(((IntGrid) source).cells, fromRow * cols, cells, fromRow * cols, (toRow - fromRow) * cols);
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return 4L * cells.length;
+    }
+}
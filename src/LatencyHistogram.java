@@ -0,0 +1,128 @@
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative values, e.g. step latencies in nanoseconds, with a bounded
+ * relative error in the style of HdrHistogram. Values below 128 are recorded exactly; above,
+ * every power of two is split into 64 linear buckets, so a percentile is reported within
+ * 1/64 (about 1.6%) of the recorded value. Recording is allocation-free and takes constant time.
+ * Instances are not thread-safe.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;                   // log2 of the number of buckets per power of two.
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;    // Number of buckets per power of two.
+    private static final int EXACT = 2 * SUB_BUCKETS;               // Values below this are recorded exactly.
+    private static final int BUCKETS = EXACT + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS]; // Number of values recorded in each bucket.
+    private long count;                              // Number of recorded values.
+    private long sum;                                // Sum of the recorded values.
+    private long min = Long.MAX_VALUE;               // Smallest recorded value.
+    private long max;                                // Largest recorded value.
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value The value to record.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Returns the bucket of a non-negative value.
+     */
+    private static int bucketOf(long value) {
+        if (value < EXACT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS; // At least 1.
+        int top = (int) (value >>> shift); // Between SUB_BUCKETS and 2 * SUB_BUCKETS - 1.
+        return EXACT + (shift - 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+    }
+
+    /**
+     * Returns the largest value falling into a bucket.
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < EXACT) {
+            return bucket;
+        }
+        int shift = (bucket - EXACT) / SUB_BUCKETS + 1;
+        long top = (bucket - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Returns the value below or at which a percentage of the recorded values fall.
+     *
+     * @param percentile The percentage, between 0 and 100.
+     * @return The value at that percentile, never above the maximum, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * count));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.min(max, highestValueOf(b));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the smallest recorded value.
+     *
+     * @return The minimum, or 0 if nothing was recorded.
+     */
+    public long getMin() {
+        return (count > 0) ? min : 0;
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return The maximum, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return The mean, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        return (count > 0) ? (double) sum / count : 0.0;
+    }
+
+    /**
+     * Forgets every recorded value.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+}
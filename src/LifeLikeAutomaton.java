@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Class representing a cellular automaton driven by any {@link LifeRule}, e.g. HighLife
+ * ({@code "B36/S23"}), Seeds ({@code "B2/S"}) or Brian's Brain ({@code "B2/S/C3"}).
+ * The rule is compiled once into a transition table indexed by {@code (state, live neighbors)},
+ * so every rule runs on the same {@link RowKernel}, with parallel row bands, activity tracking,
+ * cycle detection and metrics. Cells outside the grid are dead.
+ */
+public class LifeLikeAutomaton extends CellularAutomaton {
+
+    private final LifeRule rule;   // Rule of the automaton.
+    private final int states;      // Number of states of the rule.
+
+    private final RegionTask regionUpdater = this::updateRegion; // Region task reused every generation.
+    private final ThreadLocal<PaddedRows> paddedRows;           // Per thread, rows of a region and cells leaving each state.
+
+    /**
+     * Constructor for the {@code LifeLikeAutomaton} class.
+     *
+     * @param rows The number of rows in the grid.
+     * @param cols The number of columns in the grid.
+     * @param rule The rule string, e.g. {@code "B36/S23"}.
+     */
+    public LifeLikeAutomaton(int rows, int cols, String rule) {
+        this(rows, cols, LifeRule.parse(rule));
+    }
+
+    /**
+     * Constructor for the {@code LifeLikeAutomaton} class.
+     *
+     * @param rows The number of rows in the grid.
+     * @param cols The number of columns in the grid.
+     * @param rule The rule.
+     */
+    public LifeLikeAutomaton(int rows, int cols, LifeRule rule) {
+        this(rows, cols, rule, GridStorage.BYTE);
+    }
+
+    /**
+     * Constructor for the {@code LifeLikeAutomaton} class with the cells in a given storage.
+     *
+     * @param rows    The number of rows in the grid.
+     * @param cols    The number of columns in the grid.
+     * @param rule    The rule.
+     * @param storage The representation of the cells.
+     */
+    public LifeLikeAutomaton(int rows, int cols, LifeRule rule, GridStorage storage) {
+        super(rows, cols, rule.getStates(), storage);
+        this.rule = rule;
+        this.states = rule.getStates();
+        this.paddedRows = ThreadLocal.withInitial(() -> new PaddedRows(states));
+    }
+
+    /**
+     * Randomly initializes the state of the grid.
+     * Each cell is randomly assigned a state of 0 (dead) or 1 (alive).
+     */
+    @Override
+    public void initializeRandomState() {
+        int[] cells = new int[state.getCols()]; // States of the row being initialized.
+        for (int i = 0; i < state.getRows(); i++) {
+            for (int j = 0; j < cells.length; j++) {
+                cells[j] = (initialRandom(i, j) < 0.5) ? 0 : 1; // Randomly assign 0 or 1.
+            }
+            state.setRow(i, cells);
+        }
+        markAllTilesDirty();
+    }
+
+    /**
+     * Evolves the automaton over a specified number of steps.
+     *
+     * @param numSteps The number of steps to evolve the simulation.
+     */
+    @Override
+    public void evolve(int numSteps) {
+        run(numSteps, new StatePrinter(true), 1); // Print the step number and state before each step.
+    }
+
+    /**
+     * Applies the compiled rule to every cell of the grid.
+     */
+    @Override
+    protected void applyRules() {
+        stepRegions(regionUpdater, 1); // Compute the next state into the scratch buffer.
+        swapBuffers(); // Update the grid with the newly computed state.
+    }
+
+    /**
+     * Computes the next state of a region into {@code nextState}.
+     * The rows of the region are copied with their halo into padded rows,
+     * and the row kernel computes a whole row segment at once.
+     *
+     * @param fromRow The first row of the region (inclusive).
+     * @param toRow   The last row of the region (exclusive).
+     * @param fromCol The first column of the region (inclusive).
+     * @param toCol   The last column of the region (exclusive).
+     * @return {@link #TILE_CHANGED} if a cell of the region changed, otherwise 0.
+     */
+    private int updateRegion(int fromRow, int toRow, int fromCol, int toCol) {
+        int length = toCol - fromCol;
+        PaddedRows rows = paddedRows.get();
+        rows.reset(length);
+        int[] leaving = rows.counts; // A changed cell always goes to the successor of its state.
+        RowKernel kernel = getRowKernel();
+        int changed = 0;
+        boolean hashing = isStateHashing();
+        long hashDelta = 0; // Changes of the state hash, reported once for the region.
+        BoundaryCondition boundary = getBoundary(); // Fills the ghost cells around the region.
+        PaddedRows.load(state, boundary, fromRow - 1, fromCol, toCol, rows.row);
+        PaddedRows.load(state, boundary, fromRow, fromCol, toCol, rows.below);
+        for (int i = fromRow; i < toRow; i++) {
+            rows.slide();
+            PaddedRows.load(state, boundary, i + 1, fromCol, toCol, rows.below);
+            int rowChanges = kernel.stepLife(rule, rows.above, rows.row, rows.below, rows.next, length, leaving);
+            if (rowChanges > 0) {
+                changed += rowChanges;
+                if (hashing) {
+                    hashDelta ^= rows.hashDelta(i, fromCol, length);
+                }
+            }
+            nextState.setRow(i, fromCol, rows.next, 0, length);
+        }
+        if (changed == 0) {
+            return 0;
+        }
+        recordChanges(changed, hashDelta);
+        for (int s = 0; s < states; s++) {
+            if (leaving[s] > 0) {
+                recordTransitions(s, (s + 1) % states, leaving[s]); // Births, deaths and aging.
+            }
+        }
+        return TILE_CHANGED;
+    }
+
+    /**
+     * Reports the changed cells of every step, for cycle detection and metrics.
+     *
+     * @return {@code true}.
+     */
+    @Override
+    protected boolean reportsCellChanges() {
+        return true;
+    }
+
+    /**
+     * Supports every boundary condition: the ghost cells around each region are loaded from the
+     * cells the boundary maps them to.
+     *
+     * @return {@code true}.
+     */
+    @Override
+    protected boolean supportsBoundary(BoundaryCondition boundary) {
+        return true;
+    }
+
+    /**
+     * Returns the rule of the automaton.
+     *
+     * @return The rule.
+     */
+    public LifeRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Writes the current state of the grid.
+     * Uses "+" for live cells, "-" for dead cells and "o" for dying cells.
+     *
+     * @param out The writer receiving the text of the grid.
+     * @throws IOException If the writer fails.
+     */
+    @Override
+    public void writeState(Writer out) throws IOException {
+        int[] cells = new int[state.getCols()]; // States of the row being written.
+        for (int i = 0; i < state.getRows(); i++) {
+            state.getRow(i, cells);
+            for (int cell : cells) {
+                out.write((cell == 1) ? "+ " : (cell == 0) ? "- " : "o "); // "+" alive, "-" dead, "o" dying.
+            }
+            out.write(System.lineSeparator()); // Newline for the next row.
+        }
+        out.write(System.lineSeparator()); // Extra newline for better readability between steps.
+    }
+}
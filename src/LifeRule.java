@@ -0,0 +1,218 @@
+/**
+ * A life-like rule on the Moore neighborhood, parsed from a rule string and compiled into a
+ * lookup table indexed by {@code (state, live neighbors)}.
+ * <p>
+ * Two-state rules use the usual birth/survival notation, e.g. {@code "B3/S23"} for Conway's
+ * "Game of Life", {@code "B36/S23"} for HighLife or {@code "B2/S"} for Seeds; {@code "S23/B3"}
+ * and the numeric form {@code "23/3"} (survival/birth) are accepted too. Generations rules add a
+ * number of states {@code C}, e.g. {@code "B2/S/C3"} (Brian's Brain) or {@code "345/2/4"}
+ * (survival/birth/states): a live cell (state 1) that does not survive enters the dying states
+ * {@code 2 .. C-1} one generation at a time, then becomes dead (state 0). Only live cells count
+ * as neighbors, and dying cells cannot be born again before they are dead.
+ */
+public final class LifeRule {
+
+    /**
+     * Conway's "Game of Life".
+     */
+    public static final LifeRule CONWAY = parse("B3/S23");
+
+    /**
+     * Maximum number of states of a Generations rule, so that its cells fit in a byte.
+     */
+    public static final int MAX_STATES = 256;
+
+    private final int births;    // Bit n is set if a dead cell with n live neighbors is born.
+    private final int survivals; // Bit n is set if a live cell with n live neighbors survives.
+    private final int states;    // Number of states: 2, or more for Generations rules.
+    final byte[] table;          // Compiled transition table, shared by the kernels; never modified.
+    final byte[] live;           // 1 for the live state, 0 for the others, indexed by state.
+
+    /**
+     * Constructor for the {@code LifeRule} class.
+     *
+     * @param births    The birth mask: bit {@code n} (0 to 8) is set if a dead cell with {@code n} live neighbors is born.
+     * @param survivals The survival mask: bit {@code n} is set if a live cell with {@code n} live neighbors survives.
+     * @param states    The number of states, 2 for a two-state rule.
+     */
+    public LifeRule(int births, int survivals, int states) {
+        if ((births & ~0x1FF) != 0 || (survivals & ~0x1FF) != 0) {
+            throw new IllegalArgumentException("Neighbor counts must be between 0 and 8");
+        }
+        if (states < 2 || states > MAX_STATES) {
+            throw new IllegalArgumentException("Number of states must be between 2 and " + MAX_STATES + ": " + states);
+        }
+        this.births = births;
+        this.survivals = survivals;
+        this.states = states;
+        this.table = compile();
+        this.live = new byte[states];
+        this.live[1] = 1;
+    }
+
+    /**
+     * Parses a rule string such as {@code "B36/S23"} or {@code "B2/S/C3"}.
+     *
+     * @param rule The rule string.
+     * @return The rule.
+     * @throws IllegalArgumentException If the string is not a valid rule.
+     */
+    public static LifeRule parse(String rule) {
+        String[] parts = rule.trim().split("/", -1);
+        int births = -1;
+        int survivals = -1;
+        int states = 2;
+        boolean numeric = Character.isDigit(firstChar(parts[0])) || parts[0].isEmpty();
+        if (numeric && (parts.length == 2 || parts.length == 3)) { // survival/birth[/states]
+            survivals = counts(parts[0], rule);
+            births = counts(parts[1], rule);
+            if (parts.length == 3) {
+                states = stateCount(parts[2], rule);
+            }
+        } else {
+            for (String part : parts) {
+                char prefix = Character.toUpperCase(firstChar(part));
+                String digits = part.isEmpty() ? "" : part.substring(1);
+                if (prefix == 'B' && births < 0) {
+                    births = counts(digits, rule);
+                } else if (prefix == 'S' && survivals < 0) {
+                    survivals = counts(digits, rule);
+                } else if (prefix == 'C' && states == 2) {
+                    states = stateCount(digits, rule);
+                } else {
+                    throw new IllegalArgumentException("Invalid rule: " + rule);
+                }
+            }
+        }
+        if (births < 0 || survivals < 0) {
+            throw new IllegalArgumentException("Rule must define births and survivals: " + rule);
+        }
+        return new LifeRule(births, survivals, states);
+    }
+
+    private static char firstChar(String part) {
+        return part.isEmpty() ? '\0' : part.charAt(0);
+    }
+
+    /**
+     * Converts digits such as {@code "236"} to a mask of neighbor counts.
+     */
+    private static int counts(String digits, String rule) {
+        int mask = 0;
+        for (int k = 0; k < digits.length(); k++) {
+            char digit = digits.charAt(k);
+            if (digit < '0' || digit > '8') {
+                throw new IllegalArgumentException("Invalid neighbor count '" + digit + "' in rule: " + rule);
+            }
+            mask |= 1 << (digit - '0');
+        }
+        return mask;
+    }
+
+    private static int stateCount(String digits, String rule) {
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number of states in rule: " + rule);
+        }
+    }
+
+    /**
+     * Returns the birth mask.
+     *
+     * @return A mask whose bit {@code n} is set if a dead cell with {@code n} live neighbors is born.
+     */
+    public int getBirths() {
+        return births;
+    }
+
+    /**
+     * Returns the survival mask.
+     *
+     * @return A mask whose bit {@code n} is set if a live cell with {@code n} live neighbors survives.
+     */
+    public int getSurvivals() {
+        return survivals;
+    }
+
+    /**
+     * Returns the number of states of the cells.
+     *
+     * @return 2 for a two-state rule, more for a Generations rule.
+     */
+    public int getStates() {
+        return states;
+    }
+
+    /**
+     * Returns the next state of a cell.
+     *
+     * @param state     The current state of the cell.
+     * @param neighbors The number of live neighbors (0 to 8).
+     * @return The next state of the cell.
+     */
+    public int next(int state, int neighbors) {
+        if (state == 0) {
+            return (births >>> neighbors & 1) != 0 ? 1 : 0;
+        }
+        if (state == 1 && (survivals >>> neighbors & 1) != 0) {
+            return 1;
+        }
+        return (state + 1) % states; // Live cells start dying, dying cells age until dead.
+    }
+
+    /**
+     * Compiles the rule into a transition table: entry {@code state * 9 + neighbors}
+     * holds the next state, as an unsigned byte.
+     *
+     * @return A new transition table of {@code 9 * getStates()} entries.
+     */
+    public byte[] compile() {
+        byte[] table = new byte[states * 9];
+        for (int state = 0; state < states; state++) {
+            for (int neighbors = 0; neighbors <= 8; neighbors++) {
+                table[state * 9 + neighbors] = (byte) next(state, neighbors);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Returns the rule string, e.g. {@code "B36/S23"} or {@code "B2/S/C3"}.
+     *
+     * @return The canonical rule string.
+     */
+    @Override
+    public String toString() {
+        StringBuilder rule = new StringBuilder("B");
+        appendCounts(rule, births);
+        rule.append("/S");
+        appendCounts(rule, survivals);
+        if (states > 2) {
+            rule.append("/C").append(states);
+        }
+        return rule.toString();
+    }
+
+    private static void appendCounts(StringBuilder rule, int mask) {
+        for (int n = 0; n <= 8; n++) {
+            if ((mask >>> n & 1) != 0) {
+                rule.append((char) ('0' + n));
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof LifeRule)) {
+            return false;
+        }
+        LifeRule rule = (LifeRule) other;
+        return births == rule.births && survivals == rule.survivals && states == rule.states;
+    }
+
+    @Override
+    public int hashCode() {
+        return (births * 31 + survivals) * 31 + states;
+    }
+}
@@ -1,22 +1,37 @@
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Arrays;
 
 /**
  * Class representing a cellular automaton based on the majority rule.
  * A cell's new state is determined by the majority state within its neighborhood.
+ * Each region is swept row by row with sliding window sums: the sums of each column over the
+ * rows of the window are updated by adding the row entering it and subtracting the row leaving
+ * it, and the window sums slide along them, so the cost per cell does not depend on the
+ * neighborhood size. The sums only cover the region being updated and a border as wide as the
+ * neighborhood radius, filled according to the boundary condition, so with activity tracking
+ * quiet tiles cost nothing and no table as large as the grid is kept.
  */
 public class MajorityCellularAutomaton extends CellularAutomaton {
 
     private int neighborhoodSize; // The size of the neighborhood used for the majority rule.
 
+    private final ThreadLocal<WindowSums> windowSums = ThreadLocal.withInitial(WindowSums::new); // Per thread, sums of a region.
+    private final RegionTask regionUpdater = this::updateRegion; // Region task reused every generation.
+
     /**
      * Constructor for the {@code MajorityCellularAutomaton} class.
      *
      * @param rows             The number of rows in the grid.
      * @param cols             The number of columns in the grid.
-     * @param neighborhoodSize The size of the neighborhood used for the majority rule.
+     * @param neighborhoodSize The side of the square neighborhood used for the majority rule,
+     *                         an odd number so that the neighborhood is centered on the cell.
      */
     public MajorityCellularAutomaton(int rows, int cols, int neighborhoodSize) {
-        super(rows, cols); // Initialize the grid with the specified dimensions.
+        super(rows, cols, 2); // Initialize the grid of 0 and 1 cells.
+        if (neighborhoodSize < 1 || neighborhoodSize % 2 == 0) {
+            throw new IllegalArgumentException("Neighborhood size must be odd and at least 1: " + neighborhoodSize);
+        }
         this.neighborhoodSize = neighborhoodSize;
     }
 
@@ -26,11 +41,14 @@ public class MajorityCellularAutomaton extends CellularAutomaton {
      */
     @Override
     public void initializeRandomState() {
-        for (int i = 0; i < state.length; i++) {
-            for (int j = 0; j < state[0].length; j++) {
-                state[i][j] = (Math.random() < 0.5) ? 0 : 1; // Randomly assign 0 or 1.
+        int[] cells = new int[state.getCols()]; // States of the row being initialized.
+        for (int i = 0; i < state.getRows(); i++) {
+            for (int j = 0; j < cells.length; j++) {
+                cells[j] = (initialRandom(i, j) < 0.5) ? 0 : 1; // Randomly assign 0 or 1.
             }
+            state.setRow(i, cells);
         }
+        markAllTilesDirty();
     }
 
     /**
@@ -40,11 +58,7 @@ public class MajorityCellularAutomaton extends CellularAutomaton {
      */
     @Override
     public void evolve(int numSteps) {
-        for (int step = 0; step < numSteps; step++) {
-            System.out.println("Step " + (step + 1)); // Display the current step number.
-            printState(); // Print the current state of the grid.
-            applyRules(); // Apply the rules to compute the next state.
-        }
+        run(numSteps, new StatePrinter(true), 1); // Print the step number and state before each step.
     }
 
     /**
@@ -53,68 +67,173 @@ public class MajorityCellularAutomaton extends CellularAutomaton {
      */
     @Override
     protected void applyRules() {
-        int[][] newState = new int[state.length][state[0].length]; // Temporary grid for the next state.
-
-        for (int i = 0; i < state.length; i++) {
-            for (int j = 0; j < state[0].length; j++) {
-                int[] neighborhood = getNeighborhood(i, j); // Get the neighborhood of the current cell.
-                newState[i][j] = applyMajorityRuleToCell(neighborhood); // Apply the majority rule.
-            }
-        }
-
-        state = newState; // Update the grid with the new computed state.
+        stepRegions(regionUpdater, neighborhoodSize / 2); // Compute the next state into the scratch buffer.
+        swapBuffers(); // Update the grid with the new computed state.
     }
 
     /**
-     * Retrieves the neighborhood of a cell at a given position.
-     * The neighborhood includes the cells within a square region centered on the target cell.
+     * Computes the next state of a region into {@code nextState}.
+     * The column sums start with the rows above the first row of the region; every row of the
+     * region then moves the window down by adding the row entering it and subtracting the row
+     * leaving it, and slides the window sums along the columns.
      *
-     * @param row The row index of the cell.
-     * @param col The column index of the cell.
-     * @return An array representing the neighborhood states.
+     * @param fromRow The first row of the region (inclusive).
+     * @param toRow   The last row of the region (exclusive).
+     * @param fromCol The first column of the region (inclusive).
+     * @param toCol   The last column of the region (exclusive).
+     * @return {@link #TILE_CHANGED} if a cell of the region changed, otherwise 0.
      */
-    private int[] getNeighborhood(int row, int col) {
-        int[] neighborhood = new int[neighborhoodSize * neighborhoodSize];
-        int index = 0;
-
-        // Loop through the square region surrounding the cell.
-        for (int i = row - neighborhoodSize / 2; i <= row + neighborhoodSize / 2; i++) {
-            for (int j = col - neighborhoodSize / 2; j <= col + neighborhoodSize / 2; j++) {
-                if (i >= 0 && i < state.length && j >= 0 && j < state[0].length) {
-                    neighborhood[index++] = state[i][j]; // Add the neighbor's state.
-                } else {
-                    neighborhood[index++] = 0; // Assume 0 for neighbors outside bounds.
+    private int updateRegion(int fromRow, int toRow, int fromCol, int toCol) {
+        int radius = neighborhoodSize / 2;
+        int length = toCol - fromCol;
+        int side = 2 * radius + 1; // Width of the window, which is centered on the cell.
+        int threshold = (neighborhoodSize * neighborhoodSize) / 2;
+        BoundaryCondition boundary = getBoundary();
+        WindowSums sums = windowSums.get();
+        sums.reset(length + 2 * radius);
+        int[] columnSums = sums.columnSums;
+        byte[] current = sums.current;
+        byte[] next = sums.next;
+        // Start one row higher, so that every row of the region subtracts the row leaving the window.
+        for (int p = fromRow - radius - 1; p < fromRow + radius; p++) {
+            PaddedRows.load(state, boundary, p, fromCol, toCol, radius, sums.entering);
+            sums.slide(sums.entering, sums.zeros);
+        }
+        int changed = 0; // Number of changed cells.
+        int births = 0;  // Number of cells going from state 0 to state 1.
+        boolean hashing = isStateHashing();
+        long hashDelta = 0; // Changes of the state hash, reported once for the region.
+        for (int i = fromRow; i < toRow; i++) {
+            PaddedRows.load(state, boundary, i + radius, fromCol, toCol, radius, sums.entering);
+            PaddedRows.load(state, boundary, i - radius - 1, fromCol, toCol, radius, sums.leaving);
+            sums.slide(sums.entering, sums.leaving);
+            state.getRow(i, fromCol, current, 0, length);
+            int sum = 0; // Sum of the window of the cell, without its last column.
+            for (int k = 0; k < side - 1; k++) {
+                sum += columnSums[k];
+            }
+            for (int k = 0; k < length; k++) {
+                sum += columnSums[k + side - 1];
+                int cell = applyMajorityRuleToCell(sum, threshold); // Apply the majority rule.
+                sum -= columnSums[k];
+                next[k] = (byte) cell;
+                if (cell != current[k]) {
+                    changed++;
+                    births += cell;
+                    if (hashing) {
+                        hashDelta ^= zobristKey(i, fromCol + k, current[k]) ^ zobristKey(i, fromCol + k, cell);
+                    }
                 }
             }
+            nextState.setRow(i, fromCol, next, 0, length);
+        }
+        if (changed == 0) {
+            return 0;
         }
+        recordChanges(changed, hashDelta);
+        recordTransitions(0, 1, births);
+        recordTransitions(1, 0, changed - births);
+        return TILE_CHANGED;
+    }
 
-        return neighborhood;
+    /**
+     * Reports the changed cells of every step, for cycle detection and metrics.
+     *
+     * @return {@code true}.
+     */
+    @Override
+    protected boolean reportsCellChanges() {
+        return true;
     }
 
     /**
-     * Applies the majority rule to determine a cell's new state based on its neighborhood.
+     * Supports every boundary condition: the border of the window sums is filled from the
+     * cells the boundary maps it to.
      *
-     * @param neighborhood The neighborhood states of the cell.
+     * @return {@code true}.
+     */
+    @Override
+    protected boolean supportsBoundary(BoundaryCondition boundary) {
+        return true;
+    }
+
+    /**
+     * Applies the majority rule to determine a cell's new state based on its neighborhood sum.
+     *
+     * @param sum       The sum of the neighborhood states of the cell.
+     * @param threshold Half the number of cells of the neighborhood, rounded down.
      * @return The new state of the cell (1 if the majority of neighbors are 1, otherwise 0).
      */
-    private int applyMajorityRuleToCell(int[] neighborhood) {
-        int sum = Arrays.stream(neighborhood).sum(); // Sum up the states in the neighborhood.
+    private static int applyMajorityRuleToCell(int sum, int threshold) {
         // Return 1 if the majority are 1, otherwise return 0.
-        return (sum > neighborhood.length / 2) ? 1 : 0;
+        return (sum > threshold) ? 1 : 0;
     }
 
     /**
-     * Prints the current state of the grid.
+     * Returns the size of the neighborhood used for the majority rule.
+     *
+     * @return The side of the square neighborhood.
+     */
+    public int getNeighborhoodSize() {
+        return neighborhoodSize;
+    }
+
+    /**
+     * Writes the current state of the grid.
      * Uses "+" to represent cells with state 1 and "-" for cells with state 0.
+     *
+     * @param out The writer receiving the text of the grid.
+     * @throws IOException If the writer fails.
      */
     @Override
-    protected void printState() {
-        for (int[] row : state) {
-            for (int cell : row) {
-                System.out.print((cell == 1) ? "+ " : "- "); // "+" for 1, "-" for 0.
+    public void writeState(Writer out) throws IOException {
+        int[] cells = new int[state.getCols()]; // States of the row being written.
+        for (int i = 0; i < state.getRows(); i++) {
+            state.getRow(i, cells);
+            for (int cell : cells) {
+                out.write((cell == 1) ? "+ " : "- "); // "+" for 1, "-" for 0.
+            }
+            out.write(System.lineSeparator()); // Newline for the next row.
+        }
+        out.write(System.lineSeparator()); // Extra newline for better readability between steps.
+    }
+
+    /**
+     * Per-thread scratch buffers of the window sums of a region.
+     */
+    private static final class WindowSums {
+        int[] columnSums = new int[0]; // Sums of each padded column over the rows of the window.
+        byte[] entering = new byte[0]; // Padded row entering the window.
+        byte[] leaving = new byte[0];  // Padded row leaving the window.
+        byte[] zeros = new byte[0];    // Padded row of dead cells.
+        byte[] current = new byte[0];  // Current states of the row being updated.
+        byte[] next = new byte[0];     // Next states of the row being updated.
+        int padded;                    // Number of columns of the region, border included.
+
+        /**
+         * Makes the buffers large enough for regions of {@code padded} columns, border included,
+         * and clears the column sums.
+         */
+        void reset(int padded) {
+            if (columnSums.length < padded) {
+                columnSums = new int[padded];
+                entering = new byte[padded];
+                leaving = new byte[padded];
+                zeros = new byte[padded];
+                current = new byte[padded];
+                next = new byte[padded];
+            }
+            this.padded = padded;
+            Arrays.fill(columnSums, 0, padded, 0);
+        }
+
+        /**
+         * Moves the window down: adds a padded row to the column sums and subtracts another one.
+         */
+        void slide(byte[] in, byte[] out) {
+            for (int k = 0; k < padded; k++) {
+                columnSums[k] += in[k] - out[k];
             }
-            System.out.println(); // Newline for the next row.
         }
-        System.out.println(); // Extra newline for better readability between steps.
     }
 }
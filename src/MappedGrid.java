@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Grid storing one byte per cell in a memory-mapped file instead of the Java heap,
+ * for rules with at most 256 states on grids too large for {@code -Xmx}.
+ * The file is mapped as segments of up to 1 GiB holding whole rows, so a cell is
+ * addressed with a shift and a mask; a row longer than 1 GiB gets a segment of its own.
+ * The operating system pages the cells in and out, and a step walking the grid row by row
+ * streams through the file sequentially, copying whole row segments with bulk reads and writes.
+ * The backing file is sparse and is deleted once the mappings are released, by
+ * {@link #release()} or when the grid is collected.
+ * <p>
+ * Row and column indices are ints, but the number of cells is not limited to 2^31: rules
+ * stepped with {@link CellularAutomaton#stepRegions} only keep a few rows on the heap.
+ * Code copying a whole grid into one heap array is limited to 2^31 cells, though,
+ * e.g. the snapshots of a {@link FrameRecorder}.
+ */
+public class MappedGrid extends Grid {
+
+    /**
+     * Maximum number of bytes mapped by one segment, unless a single row is longer.
+     */
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    /**
+     * Maximum number of cells copied at once by {@link #copyRows(Grid, int, int)}.
+     */
+    private static final int COPY_CHUNK = 1 << 16;
+
+    private final int segmentShift;        // log2 of the number of rows per segment.
+    private final int segmentRowMask;      // Mask giving the row index within its segment.
+    private final MappedByteBuffer[] segments; // Row-major cells, a power of two rows per segment, null once released.
+    private final ThreadLocal<ByteBuffer[]> views = new ThreadLocal<>(); // Per thread, positioned views of the segments.
+
+    /**
+     * Constructor for the {@code MappedGrid} class, backed by a temporary file
+     * in the directory given by the {@code java.io.tmpdir} system property.
+     *
+     * @param rows The number of rows in the grid.
+     * @param cols The number of columns in the grid.
+     */
+    public MappedGrid(int rows, int cols) {
+        this(rows, cols, Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Constructor for the {@code MappedGrid} class, backed by a temporary file in a directory.
+     *
+     * @param rows      The number of rows in the grid.
+     * @param cols      The number of columns in the grid.
+     * @param directory The directory receiving the backing file.
+     */
+    public MappedGrid(int rows, int cols, Path directory) {
+        super(rows, cols);
+        // At least one row per segment: a row is at most Integer.MAX_VALUE bytes, which one mapping can hold.
+        long fittingRows = SEGMENT_BYTES / Math.max(1, cols);
+        int rowsPerSegment = Integer.highestOneBit((int) Math.max(1, Math.min(Integer.MAX_VALUE, fittingRows)));
+        this.segmentShift = Integer.numberOfTrailingZeros(rowsPerSegment);
+        this.segmentRowMask = rowsPerSegment - 1;
+        this.segments = new MappedByteBuffer[(int) (((long) rows + rowsPerSegment - 1) >>> segmentShift)];
+        try {
+            Path file = Files.createTempFile(directory, "automaton", ".grid");
+            // The file is deleted when the channel is closed; the mappings stay valid until released.
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+                for (int s = 0; s < segments.length; s++) {
+                    long firstRow = (long) s << segmentShift;
+                    long segmentRows = Math.min(rowsPerSegment, rows - firstRow);
+                    segments[s] = channel.map(FileChannel.MapMode.READ_WRITE,
+                            firstRow * cols, segmentRows * cols); // Mapping past the end grows the file.
+                }
+            }
+        } catch (IOException e) {
+            release();
+            throw new UncheckedIOException("Cannot map a " + rows + "x" + cols + " grid in " + directory, e);
+        }
+    }
+
+    @Override
+    public int get(int row, int col) {
+        return segments[row >>> segmentShift].get((row & segmentRowMask) * cols + col) & 0xFF;
+    }
+
+    @Override
+    public void set(int row, int col, int value) {
+        segments[row >>> segmentShift].put((row & segmentRowMask) * cols + col, (byte) value);
+    }
+
+    @Override
+    public void getRow(int row, int fromCol, byte[] cells, int offset, int length) {
+        view(row, fromCol).get(cells, offset, length);
+    }
+
+    @Override
+    public void setRow(int row, int fromCol, byte[] cells, int offset, int length) {
+        view(row, fromCol).put(cells, offset, length);
+    }
+
+    /**
+     * Copies the rows through a byte buffer of at most {@value #COPY_CHUNK} cells,
+     * in bulk when the source keeps a byte per cell as well.
+     */
+    @Override
+    public void copyRows(Grid source, int fromRow, int toRow) {
+        checkSameDimensions(source);
+        byte[] chunk = new byte[Math.min(cols, COPY_CHUNK)]; // Cells being copied.
+        for (int i = fromRow; i < toRow; i++) {
+            for (int j = 0; j < cols; j += chunk.length) {
+                int length = Math.min(chunk.length, cols - j);
+                source.getRow(i, j, chunk, 0, length);
+                setRow(i, j, chunk, 0, length);
+            }
+        }
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return (long) rows * cols;
+    }
+
+    /**
+     * Unmaps the segments, which frees their address space and lets the file system reclaim the
+     * backing file right away instead of when the garbage collector finds the grid unreachable.
+     * The grid must not be used afterwards, nor while it is being released.
+     */
+    @Override
+    public void release() {
+        views.remove();
+        for (int s = 0; s < segments.length; s++) {
+            MappedByteBuffer segment = segments[s];
+            segments[s] = null; // Later accesses fail instead of reading unmapped memory.
+            if (segment != null) {
+                unmap(segment);
+            }
+        }
+    }
+
+    /**
+     * Returns this thread's view of the segment holding a row, positioned on a cell.
+     * Views have their own position, so several threads can copy rows concurrently.
+     */
+    private ByteBuffer view(int row, int col) {
+        int s = row >>> segmentShift;
+        MappedByteBuffer segment = segments[s];
+        if (segment == null) {
+            throw new IllegalStateException("The grid has been released");
+        }
+        ByteBuffer[] threadViews = views.get();
+        if (threadViews == null) {
+            threadViews = new ByteBuffer[segments.length];
+            views.set(threadViews);
+        }
+        ByteBuffer view = threadViews[s];
+        if (view == null) {
+            view = segment.duplicate();
+            threadViews[s] = view;
+        }
+        view.position((row & segmentRowMask) * cols + col);
+        return view;
+    }
+
+    /**
+     * Unmaps a segment with the JDK's internal cleaner, through reflection since there is no
+     * public API to unmap a buffer. If this JDK does not expose the cleaner, the mapping is
+     * left to the garbage collector.
+     */
+    private static void unmap(MappedByteBuffer segment) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class); // Java 9 and later.
+            } catch (NoSuchMethodException e) {
+                Method cleanerMethod = segment.getClass().getMethod("cleaner"); // Java 8.
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(segment);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+                return;
+            }
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), segment);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Not unmapped now: the mapping is released when the segment is collected.
+        }
+    }
+}
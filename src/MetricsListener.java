@@ -0,0 +1,17 @@
+/**
+ * Listener notified with the metrics of every step of an automaton, registered with
+ * {@link CellularAutomaton#addMetricsListener(MetricsListener)}.
+ * {@link AutomatonMetrics} aggregates them and publishes them over JMX.
+ */
+@FunctionalInterface
+public interface MetricsListener {
+
+    /**
+     * Called on the stepping thread after each step. The metrics object is reused by the
+     * next step, so listeners must copy the values they keep.
+     *
+     * @param automaton The measured cellular automaton.
+     * @param metrics   The metrics of the step.
+     */
+    void onMetrics(CellularAutomaton automaton, GenerationMetrics metrics);
+}
@@ -0,0 +1,146 @@
+/**
+ * Grid packing several cells into each {@code long} word, with 1, 2, 4 or 8 bits per cell.
+ * Every row starts on a new word, so row bands updated by different threads never
+ * write to the same word.
+ */
+public class PackedGrid extends Grid {
+
+    private final int bitsPerCell;  // Number of bits of each cell.
+    private final int cellShift;    // log2 of the number of cells per word.
+    private final int bitShift;     // log2 of bitsPerCell.
+    private final long cellMask;    // Mask of the bits of one cell, at offset 0.
+    private final int wordsPerRow;  // Number of words of each row, including padding.
+    private final long[] words;     // Row-major words.
+
+    /**
+     * Constructor for the {@code PackedGrid} class.
+     *
+     * @param rows        The number of rows in the grid.
+     * @param cols        The number of columns in the grid.
+     * @param bitsPerCell The number of bits of each cell: 1, 2, 4 or 8.
+     */
+    public PackedGrid(int rows, int cols, int bitsPerCell) {
+        super(rows, cols);
+        if (bitsPerCell != 1 && bitsPerCell != 2 && bitsPerCell != 4 && bitsPerCell != 8) {
+            throw new IllegalArgumentException("Bits per cell must be 1, 2, 4 or 8: " + bitsPerCell);
+        }
+        this.bitsPerCell = bitsPerCell;
+        this.bitShift = Integer.numberOfTrailingZeros(bitsPerCell);
+        this.cellShift = 6 - bitShift;
+        this.cellMask = (1L << bitsPerCell) - 1;
+        this.wordsPerRow = (int) (((long) cols + (1 << cellShift) - 1) >>> cellShift);
+        this.words = new long[Math.multiplyExact(rows, wordsPerRow)];
+    }
+
+    /**
+     * Returns the smallest number of bits per cell able to hold a number of states.
+     *
+     * @param states The number of states of the rule (2 to 256).
+     * @return 1, 2, 4 or 8.
+     */
+    public static int bitsFor(int states) {
+        if (states < 1 || states > 256) {
+            throw new IllegalArgumentException("A packed grid holds 1 to 256 states: " + states);
+        }
+        int bits = 1;
+        while ((1 << bits) < states) {
+            bits <<= 1;
+        }
+        return bits;
+    }
+
+    /**
+     * Returns the number of bits of each cell.
+     *
+     * @return 1, 2, 4 or 8.
+     */
+    public int getBitsPerCell() {
+        return bitsPerCell;
+    }
+
+    @Override
+    public int get(int row, int col) {
+        long word = words[row * wordsPerRow + (col >>> cellShift)];
+        return (int) (word >>> ((col << bitShift) & 63) & cellMask);
+    }
+
+    @Override
+    public void set(int row, int col, int value) {
+        int index = row * wordsPerRow + (col >>> cellShift);
+        int offset = (col << bitShift) & 63;
+        words[index] = (words[index] & ~(cellMask << offset)) | ((value & cellMask) << offset);
+    }
+
+    @Override
+    public void getRow(int row, int[] cells) {
+        int index = row * wordsPerRow;
+        for (int j = 0; j < cols; index++) {
+            long word = words[index];
+            int end = Math.min(cols, j + (1 << cellShift));
+            for (; j < end; j++) {
+                cells[j] = (int) (word & cellMask);
+                word >>>= bitsPerCell;
+            }
+        }
+    }
+
+    @Override
+    public void setRow(int row, int[] cells) {
+        int index = row * wordsPerRow;
+        for (int j = 0; j < cols; index++) {
+            long word = 0;
+            int end = Math.min(cols, j + (1 << cellShift));
+            for (int offset = 0; j < end; j++, offset += bitsPerCell) {
+                word |= (cells[j] & cellMask) << offset;
+            }
+            words[index] = word;
+        }
+    }
+
+    @Override
+    public void getRow(int row, int fromCol, byte[] cells, int offset, int length) {
+        int index = row * wordsPerRow + (fromCol >>> cellShift);
+        int end = fromCol + length;
+        for (int j = fromCol; j < end; index++) {
+            long word = words[index] >>> ((j << bitShift) & 63); // First cell of the segment in this word at offset 0.
+            int wordEnd = Math.min(end, (j | ((1 << cellShift) - 1)) + 1);
+            for (; j < wordEnd; j++) {
+                cells[offset++] = (byte) (word & cellMask);
+                word >>>= bitsPerCell;
+            }
+        }
+    }
+
+    @Override
+    public void setRow(int row, int fromCol, byte[] cells, int offset, int length) {
+        int index = row * wordsPerRow + (fromCol >>> cellShift);
+        int end = fromCol + length;
+        for (int j = fromCol; j < end; index++) {
+            int first = (j << bitShift) & 63; // Offset of the first cell of the segment in this word.
+            int wordEnd = Math.min(end, (j | ((1 << cellShift) - 1)) + 1);
+            long word = 0;
+            int shift = first;
+            for (; j < wordEnd; j++, shift += bitsPerCell) {
+                word |= (cells[offset++] & cellMask) << shift;
+            }
+            long mask = ((shift == 64) ? -1L : (1L << shift) - 1) & (-1L << first); // Bits of the segment.
+            words[index] = (words[index] & ~mask) | word;
+        }
+    }
+
+    @Override
+    public void copyRows(Grid source, int fromRow, int toRow) {
+        if (!(source instanceof PackedGrid) || ((PackedGrid) source).bitsPerCell != bitsPerCell) {
+            super.copyRows(source, fromRow, toRow);
+            return;
+        }
+        checkSameDimensions(source);
+        System.arraycopy(((PackedGrid) source).words, fromRow * wordsPerRow, words, fromRow * wordsPerRow,
+                (toRow - fromRow) * wordsPerRow);
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return 8L * words.length;
+    }
+}
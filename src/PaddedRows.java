@@ -0,0 +1,96 @@
+import java.util.Arrays;
+
+/**
+ * Per-thread scratch buffers of the rules stepped with a {@link RowKernel}: a sliding window of
+ * three halo-padded rows, the row receiving the next states, and per-state counters.
+ */
+final class PaddedRows {
+
+    byte[] above = new byte[0]; // Padded row above the current one.
+    byte[] row = new byte[0];   // Padded current row.
+    byte[] below = new byte[0]; // Padded row below the current one.
+    byte[] next = new byte[0];  // Next states of the current row, without padding.
+    final int[] counts;         // Per-state counters of the region being updated.
+
+    /**
+     * Constructor for the {@code PaddedRows} class.
+     *
+     * @param states The number of counters.
+     */
+    PaddedRows(int states) {
+        this.counts = new int[states];
+    }
+
+    /**
+     * Makes the buffers large enough for row segments of {@code length} cells, and clears the counters.
+     */
+    void reset(int length) {
+        if (row.length < length + 2) {
+            above = new byte[length + 2];
+            row = new byte[length + 2];
+            below = new byte[length + 2];
+            next = new byte[length + 2];
+        }
+        Arrays.fill(counts, 0);
+    }
+
+    /**
+     * Loads the cells {@code fromCol - 1} to {@code toCol} of a grid row into a padded row.
+     * The ghost cells outside the grid, and the whole row when {@code r} is outside the grid,
+     * hold what the boundary condition maps them to, or 0 for dead cells.
+     */
+    static void load(Grid grid, BoundaryCondition boundary, int r, int fromCol, int toCol, byte[] cells) {
+        load(grid, boundary, r, fromCol, toCol, 1, cells);
+    }
+
+    /**
+     * Loads the cells {@code fromCol - halo} to {@code toCol + halo - 1} of a grid row into a padded row,
+     * as {@link #load(Grid, BoundaryCondition, int, int, int, byte[])} does with a border of {@code halo} cells.
+     */
+    static void load(Grid grid, BoundaryCondition boundary, int r, int fromCol, int toCol, int halo, byte[] cells) {
+        int start = fromCol - halo; // Column of cells[0].
+        int end = toCol + halo;     // Column past the last padded cell.
+        int row = boundary.map(r, grid.getRows());
+        if (row < 0) {
+            Arrays.fill(cells, 0, end - start, (byte) 0);
+            return;
+        }
+        int cols = grid.getCols();
+        int first = Math.max(start, 0);  // First column inside the grid.
+        int last = Math.min(end, cols);  // Column past the last one inside the grid.
+        for (int c = start; c < first; c++) {
+            int j = boundary.map(c, cols);
+            cells[c - start] = (j >= 0) ? (byte) grid.get(row, j) : 0;
+        }
+        grid.getRow(row, first, cells, first - start, last - first);
+        for (int c = last; c < end; c++) {
+            int j = boundary.map(c, cols);
+            cells[c - start] = (j >= 0) ? (byte) grid.get(row, j) : 0;
+        }
+    }
+
+    /**
+     * Slides the window down by one row: the current row becomes the row above, and so on.
+     */
+    void slide() {
+        byte[] previous = above;
+        above = row;
+        row = below;
+        below = previous;
+    }
+
+    /**
+     * Returns the XOR of the Zobrist key changes of the cells of the current row that differ in {@code next}.
+     */
+    long hashDelta(int r, int fromCol, int length) {
+        long delta = 0;
+        for (int k = 0; k < length; k++) {
+            int current = row[k + 1] & 0xFF;
+            int state = next[k] & 0xFF;
+            if (state != current) {
+                delta ^= CellularAutomaton.zobristKey(r, fromCol + k, current) ^ CellularAutomaton.zobristKey(r, fromCol + k, state);
+            }
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Source of the random numbers used by stochastic cellular automata.
+ * Every number is addressed by the generation and the cell it is drawn for, instead of
+ * being the next value of a shared sequence. Draws therefore do not depend on the order
+ * in which cells are visited, so runs are reproducible and contention-free at any
+ * parallelism level.
+ */
+public interface RandomSource {
+
+    /**
+     * Generation used for the draws of {@link CellularAutomaton#initializeRandomState()}.
+     */
+    long INITIALIZATION = -1;
+
+    /**
+     * Returns a uniform random number in [0, 1) for a cell at a given generation.
+     * The same arguments always return the same number.
+     *
+     * @param generation The generation of the draw, or {@link #INITIALIZATION}.
+     * @param row        The row index of the cell.
+     * @param col        The column index of the cell.
+     * @return A random number in [0, 1).
+     */
+    double nextDouble(long generation, int row, int col);
+
+    /**
+     * Returns the seed from which all the numbers of this source are derived.
+     *
+     * @return The seed.
+     */
+    long getSeed();
+}
@@ -0,0 +1,155 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads back, frame by frame, a recording written by {@link FrameRecorder}.
+ */
+public class RecordingReader implements Closeable {
+
+    private final DataInputStream in; // Recording file.
+    private final int rows;           // Number of rows of the recorded grid.
+    private final int cols;           // Number of columns of the recorded grid.
+    private final byte[] cells;       // Cells of the current frame, row-major.
+    private byte[] encoded = new byte[0]; // Reused buffer receiving the encoded frames.
+    private int length;               // Number of bytes of the current encoded frame.
+    private int position;             // Position of the next byte to decode.
+    private long generation = -1;     // Generation of the current frame.
+
+    /**
+     * Constructor for the {@code RecordingReader} class.
+     *
+     * @param file The recording to read.
+     * @throws IOException If the file cannot be read or is not a recording.
+     */
+    public RecordingReader(Path file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        try {
+            if (in.readInt() != FrameRecorder.MAGIC) {
+                throw new IOException("Not a cellular automaton recording");
+            }
+            int version = in.readInt();
+            if (version != FrameRecorder.VERSION) {
+                throw new IOException("Unsupported recording version: " + version);
+            }
+            this.rows = in.readInt();
+            this.cols = in.readInt();
+            this.cells = new byte[Math.multiplyExact(rows, cols)];
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Advances to the next frame of the recording.
+     *
+     * @return {@code true} if a frame was read, {@code false} at the end of the recording.
+     * @throws IOException If the file cannot be read or is corrupted.
+     */
+    public boolean next() throws IOException {
+        long nextGeneration;
+        try {
+            nextGeneration = in.readLong();
+        } catch (EOFException e) {
+            return false; // No more frames.
+        }
+        boolean key = in.readByte() == 0;
+        length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted frame at generation " + nextGeneration);
+        }
+        if (encoded.length < length) {
+            encoded = new byte[length];
+        }
+        in.readFully(encoded, 0, length);
+        if (key) {
+            Arrays.fill(cells, (byte) 0);
+        }
+        position = 0;
+        long k = 0;
+        while (position < length) {
+            k += readVarint(); // Unchanged cells.
+            int changed = readVarint();
+            if (k + changed > cells.length || position + changed > length) {
+                throw new IOException("Corrupted frame at generation " + nextGeneration);
+            }
+            for (int c = 0; c < changed; c++) {
+                cells[(int) k++] ^= encoded[position++];
+            }
+        }
+        generation = nextGeneration;
+        return true;
+    }
+
+    /**
+     * Decodes the varint at the current position of the encoded frame.
+     */
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position >= length) {
+                throw new IOException("Truncated frame at generation " + generation);
+            }
+            byte b = encoded[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint at generation " + generation);
+    }
+
+    /**
+     * Returns the generation of the current frame.
+     *
+     * @return The generation, or -1 before the first call to {@link #next()}.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the number of rows of the recorded grid.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the recorded grid.
+     *
+     * @return The number of columns.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the state of a cell in the current frame.
+     *
+     * @param row The row index of the cell.
+     * @param col The column index of the cell.
+     * @return The state of the cell.
+     */
+    public int getCell(int row, int col) {
+        return cells[row * cols + col] & 0xFF;
+    }
+
+    /**
+     * Closes the recording file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
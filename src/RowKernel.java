@@ -0,0 +1,69 @@
+/**
+ * Kernel computing the next state of a row segment for the rules stepped row by row
+ * ({@link LifeLikeAutomaton}, {@link GameOfLife} and {@link ForestFire}).
+ * <p>
+ * The kernels work on halo-padded rows: index {@code k + 1} of a row holds the {@code k}-th cell
+ * of the segment, and indices 0 and {@code length + 1} hold its left and right neighbors, or 0
+ * outside the grid; rows outside the grid are all 0. Every cell thus has eight neighbors in the
+ * arrays, and the kernels need no per-cell bounds checks.
+ * <p>
+ * {@link #DEFAULT} is the {@code VectorRowKernel} built by the {@code vector} module with the
+ * Vector API when it is on the class path and the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, and the {@link ScalarRowKernel} otherwise.
+ * The system property {@code automata.kernel} set to {@code scalar} or {@code vector} forces a choice.
+ */
+public interface RowKernel {
+
+    /**
+     * Kernel used by new automata.
+     */
+    RowKernel DEFAULT = load();
+
+    /**
+     * Computes the next state of a row segment of a life-like rule.
+     *
+     * @param rule    The rule.
+     * @param above   The padded row above the segment.
+     * @param row     The padded row of the segment.
+     * @param below   The padded row below the segment.
+     * @param next    The array receiving the {@code length} next states.
+     * @param length  The number of cells of the segment.
+     * @param leaving Per state, incremented by the number of cells that leave that state.
+     * @return The number of changed cells.
+     */
+    int stepLife(LifeRule rule, byte[] above, byte[] row, byte[] below, byte[] next, int length, int[] leaving);
+
+    /**
+     * Computes the next state of a row segment of a forest fire, without spontaneous ignition:
+     * burning trees burn out, and trees next to a burning tree catch fire.
+     *
+     * @param above       The padded row above the segment.
+     * @param row         The padded row of the segment.
+     * @param below       The padded row below the segment.
+     * @param next        The array receiving the {@code length} next states.
+     * @param length      The number of cells of the segment.
+     * @param transitions Incremented by the trees burning out (index 0) and catching fire (index 1).
+     * @return The number of changed cells.
+     */
+    int stepForestFire(byte[] above, byte[] row, byte[] below, byte[] next, int length, int[] transitions);
+
+    /**
+     * Loads the vector kernel if it is available, otherwise returns the scalar kernel.
+     *
+     * @return The fastest available kernel.
+     */
+    static RowKernel load() {
+        String choice = System.getProperty("automata.kernel", "auto");
+        if (!choice.equals("scalar")) {
+            try {
+                return (RowKernel) Class.forName("VectorRowKernel").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                if (choice.equals("vector")) {
+                    throw new IllegalStateException("The vector kernel is not available: put the vector module on the"
+                            + " class path and run with --add-modules jdk.incubator.vector", e);
+                }
+            }
+        }
+        return new ScalarRowKernel();
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Portable {@link RowKernel}, used when the Vector API is not available.
+ * The neighbor sums of three consecutive columns are kept in a sliding window,
+ * and the halo of the padded rows replaces the bounds checks of the cells at the edges.
+ */
+public class ScalarRowKernel implements RowKernel {
+
+    @Override
+    public int stepLife(LifeRule rule, byte[] above, byte[] row, byte[] below, byte[] next, int length, int[] leaving) {
+        byte[] table = rule.table;
+        byte[] live = rule.live;
+        int changed = 0;
+        int left = live[above[0] & 0xFF] + live[row[0] & 0xFF] + live[below[0] & 0xFF];
+        int center = live[above[1] & 0xFF] + live[row[1] & 0xFF] + live[below[1] & 0xFF];
+        for (int k = 0; k < length; k++) {
+            int right = live[above[k + 2] & 0xFF] + live[row[k + 2] & 0xFF] + live[below[k + 2] & 0xFF];
+            int current = row[k + 1] & 0xFF;
+            int state = table[current * 9 + left + center + right - live[current]] & 0xFF;
+            next[k] = (byte) state;
+            if (state != current) {
+                changed++;
+                leaving[current]++;
+            }
+            left = center;
+            center = right;
+        }
+        return changed;
+    }
+
+    @Override
+    public int stepForestFire(byte[] above, byte[] row, byte[] below, byte[] next, int length, int[] transitions) {
+        int burnedOut = 0;
+        int ignited = 0;
+        for (int k = 0; k < length; k++) {
+            int cell = row[k + 1];
+            if (cell == ForestFire.BURNING) {
+                next[k] = ForestFire.EMPTY; // A burning tree becomes empty after burning out.
+                burnedOut++;
+            } else if (cell == ForestFire.TREE) {
+                // The burning state is the largest, so the maximum of the neighbors tells if one burns.
+                int hottest = Math.max(Math.max(Math.max(above[k], above[k + 1]), Math.max(above[k + 2], row[k])),
+                        Math.max(Math.max(row[k + 2], below[k]), Math.max(below[k + 1], below[k + 2])));
+                if (hottest == ForestFire.BURNING) {
+                    next[k] = ForestFire.BURNING; // A tree catches fire if a neighbor is burning.
+                    ignited++;
+                } else {
+                    next[k] = ForestFire.TREE;
+                }
+            } else {
+                next[k] = ForestFire.EMPTY; // An empty cell remains unchanged.
+            }
+        }
+        transitions[0] += burnedOut;
+        transitions[1] += ignited;
+        return burnedOut + ignited;
+    }
+}
@@ -0,0 +1,56 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Observer printing the state of a cellular automaton to the console.
+ * Each frame is rendered into a buffered writer and flushed once, instead of
+ * issuing one {@code System.out.print} per cell.
+ */
+public class StatePrinter implements GenerationObserver {
+
+    private final Writer out;                // Buffered writer over the console.
+    private final boolean showStepNumbers;   // Whether a "Step n" header precedes each frame.
+
+    /**
+     * Constructor for the {@code StatePrinter} class, writing to {@code System.out}.
+     *
+     * @param showStepNumbers {@code true} to print a "Step n" header before each frame.
+     */
+    public StatePrinter(boolean showStepNumbers) {
+        this(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16), showStepNumbers);
+    }
+
+    /**
+     * Constructor for the {@code StatePrinter} class.
+     *
+     * @param out             The writer receiving the frames; it is flushed after every frame.
+     * @param showStepNumbers {@code true} to print a "Step n" header before each frame.
+     */
+    public StatePrinter(Writer out, boolean showStepNumbers) {
+        this.out = out;
+        this.showStepNumbers = showStepNumbers;
+    }
+
+    /**
+     * Prints the state of the automaton, preceded by its step number if requested.
+     *
+     * @param automaton  The observed cellular automaton.
+     * @param generation The generation of the current state.
+     */
+    @Override
+    public void onGeneration(CellularAutomaton automaton, long generation) {
+        try {
+            if (showStepNumbers) {
+                out.write("Step " + (generation + 1)); // Steps are numbered from 1.
+                out.write(System.lineSeparator());
+            }
+            automaton.writeState(out);
+            out.flush(); // One flush per frame.
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
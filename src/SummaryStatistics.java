@@ -0,0 +1,83 @@
+/**
+ * Streaming summary of a series of values: count, mean, standard deviation, minimum and maximum,
+ * updated with Welford's algorithm in constant memory whatever the number of values.
+ * Instances are not thread-safe.
+ */
+public class SummaryStatistics {
+
+    private long count;                      // Number of values.
+    private double mean;                     // Mean of the values.
+    private double squares;                  // Sum of the squared deviations from the mean.
+    private double min = Double.NaN;         // Smallest value.
+    private double max = Double.NaN;         // Largest value.
+
+    /**
+     * Adds a value to the summary.
+     *
+     * @param value The value.
+     */
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        squares += delta * (value - mean);
+        min = (count == 1) ? value : Math.min(min, value);
+        max = (count == 1) ? value : Math.max(max, value);
+    }
+
+    /**
+     * Returns the number of values.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean of the values.
+     *
+     * @return The mean, or NaN without values.
+     */
+    public double getMean() {
+        return (count > 0) ? mean : Double.NaN;
+    }
+
+    /**
+     * Returns the sample standard deviation of the values.
+     *
+     * @return The standard deviation, or NaN with fewer than two values.
+     */
+    public double getStandardDeviation() {
+        return (count > 1) ? Math.sqrt(squares / (count - 1)) : Double.NaN;
+    }
+
+    /**
+     * Returns the smallest value.
+     *
+     * @return The minimum, or NaN without values.
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the largest value.
+     *
+     * @return The maximum, or NaN without values.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Returns a short description of the summary, e.g. for reports.
+     *
+     * @return The mean, standard deviation and range of the values.
+     */
+    @Override
+    public String toString() {
+        return String.format("%.4f +/- %.4f [%.4f, %.4f] (n=%d)",
+                getMean(), getStandardDeviation(), getMin(), getMax(), count);
+    }
+}
@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that changing the cells outside of a step restarts cycle detection: after a cycle
+ * stopped the run, a new state steps again and its incremental hash matches a full rehash.
+ */
+class CycleDetectionTest {
+
+    private static final int HISTORY = 8;        // Generations remembered by cycle detection.
+    private static final int MAX_STEPS = 2000;   // Upper bound on the steps needed to settle.
+    private static final long FIRST_SEED = 11L;  // Seed of the state run into a cycle.
+    private static final long SECOND_SEED = 12L; // Seed of the state set after the cycle.
+
+    @ParameterizedTest
+    @ValueSource(strings = {"GRID", "BIT_PACKED", "GRID_1D", "BIT_PACKED_1D"})
+    void reseedingAfterCycleRestartsDetection(String engine) {
+        CellularAutomaton automaton = settled(engine);
+
+        automaton.setSeed(SECOND_SEED);
+        automaton.initializeRandomState();
+        assertFalse(automaton.isCycleDetected());
+        assertEquals(rehash(engine, 0), automaton.getStateHash());
+
+        long generation = automaton.getGeneration();
+        automaton.run(1);
+        assertEquals(generation + 1, automaton.getGeneration());
+        assertEquals(rehash(engine, 1), automaton.getStateHash());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"GRID", "BIT_PACKED", "GRID_1D", "BIT_PACKED_1D"})
+    void settingCellAfterCycleRestartsDetection(String engine) {
+        CellularAutomaton automaton = settled(engine);
+
+        automaton.setCell(0, 0, 1 - automaton.getCell(0, 0));
+        assertFalse(automaton.isCycleDetected());
+
+        long generation = automaton.getGeneration();
+        automaton.run(1);
+        assertEquals(generation + 1, automaton.getGeneration());
+    }
+
+    /**
+     * Runs a seeded automaton with cycle detection until a cycle stops it.
+     *
+     * @param engine The engine to create.
+     * @return The automaton, stopped on a detected cycle.
+     */
+    private static CellularAutomaton settled(String engine) {
+        CellularAutomaton automaton = create(engine);
+        automaton.setSeed(FIRST_SEED);
+        automaton.initializeRandomState();
+        automaton.setCycleDetection(HISTORY, CellularAutomaton.CycleAction.STOP);
+        automaton.run(MAX_STEPS);
+        assertTrue(automaton.isCycleDetected(), "No cycle within " + MAX_STEPS + " steps");
+
+        long generation = automaton.getGeneration();
+        automaton.run(5);
+        assertEquals(generation, automaton.getGeneration(), "A detected cycle stops the run");
+        return automaton;
+    }
+
+    /**
+     * Computes the hash of the second seeded state from the cells, without cycle detection.
+     *
+     * @param engine The engine to create.
+     * @param steps  The number of generations to step first.
+     * @return The state hash after {@code steps} generations.
+     */
+    private static long rehash(String engine, int steps) {
+        CellularAutomaton automaton = create(engine);
+        automaton.setSeed(SECOND_SEED);
+        automaton.initializeRandomState();
+        automaton.run(steps);
+        return automaton.getStateHash();
+    }
+
+    private static CellularAutomaton create(String engine) {
+        switch (engine) {
+            case "GRID":
+                return GameOfLife.create(24, 24, GameOfLife.Engine.GRID);
+            case "BIT_PACKED":
+                return GameOfLife.create(24, 24, GameOfLife.Engine.BIT_PACKED);
+            case "GRID_1D":
+                return new CellularAutomaton1D(100, 4, new int[100]);
+            case "BIT_PACKED_1D":
+                return new BitPackedCellularAutomaton1D(100, 4, new int[100]);
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Pins the output of a seeded forest fire run. The random draws are keyed on the seed, the
+ * generation and the cell, so the run reaches the same state under any number of threads;
+ * a changed hash means the rules or the random source changed the generations.
+ */
+class ForestFireRegressionTest {
+
+    private static final long SEED = 20261017L;                  // Seed of the initial state and ignitions.
+    private static final int STEPS = 12;                         // Generations stepped before hashing.
+    private static final long EXPECTED_HASH = 0xCBC51C37DD97E69FL; // State hash of the pinned run.
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4})
+    void seededRunReachesPinnedState(int parallelism) {
+        ForestFire forestFire = new ForestFire(97, 131, 0.55, 0.002, SEED);
+        forestFire.initializeRandomState();
+        forestFire.setParallelism(parallelism);
+        try {
+            forestFire.run(STEPS);
+            assertEquals(EXPECTED_HASH, forestFire.getStateHash());
+        } finally {
+            forestFire.setParallelism(1); // Release the pool threads.
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void activityTrackingDoesNotChangeTheRun(int parallelism) {
+        ForestFire forestFire = new ForestFire(97, 131, 0.55, 0.002, SEED);
+        forestFire.initializeRandomState();
+        forestFire.setParallelism(parallelism);
+        forestFire.setActivityTracking(16);
+        try {
+            forestFire.run(STEPS);
+            assertEquals(EXPECTED_HASH, forestFire.getStateHash());
+        } finally {
+            forestFire.setParallelism(1);
+        }
+    }
+}
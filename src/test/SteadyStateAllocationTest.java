@@ -0,0 +1,71 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the automata step their double-buffered grids without allocating:
+ * once warm, a generation allocates zero bytes on the stepping thread.
+ */
+class SteadyStateAllocationTest {
+
+    private static final int WARM_STEPS = 20000;    // Steps run before measuring, enough for the JIT to settle.
+    private static final int MEASURED_STEPS = 1000; // Steps whose allocations are checked.
+
+    @Test
+    void gameOfLifeAllocatesNothingPerStep() {
+        CellularAutomaton automaton = GameOfLife.create(64, 64, GameOfLife.Engine.GRID);
+        automaton.setSeed(1L);
+        automaton.initializeRandomState();
+        assertNoAllocation(automaton);
+    }
+
+    @Test
+    void lifeLikeAllocatesNothingPerStep() {
+        CellularAutomaton automaton = new LifeLikeAutomaton(64, 64, "B36/S23");
+        automaton.setSeed(2L);
+        automaton.initializeRandomState();
+        assertNoAllocation(automaton);
+    }
+
+    @Test
+    void forestFireAllocatesNothingPerStep() {
+        ForestFire automaton = new ForestFire(64, 64, 0.6, 0.001, 3L);
+        automaton.initializeRandomState();
+        assertNoAllocation(automaton);
+    }
+
+    @Test
+    void majorityAllocatesNothingPerStep() {
+        CellularAutomaton automaton = new MajorityCellularAutomaton(64, 64, 5);
+        automaton.setSeed(4L);
+        automaton.initializeRandomState();
+        assertNoAllocation(automaton);
+    }
+
+    @Test
+    void oneDimensionalAllocatesNothingPerStep() {
+        CellularAutomaton automaton = new CellularAutomaton1D(1024, 110, new int[1024]);
+        automaton.setSeed(5L);
+        automaton.initializeRandomState();
+        assertNoAllocation(automaton);
+    }
+
+    /**
+     * Runs the warm-up steps, then checks the bytes allocated by each measured step.
+     * The metrics listener is attached from the start, so the one-time costs of the metrics
+     * themselves (class loading, method handle linkage) fall in the warm-up.
+     *
+     * @param automaton The automaton to step, on the calling thread.
+     */
+    private static void assertNoAllocation(CellularAutomaton automaton) {
+        long[] allocated = new long[WARM_STEPS + MEASURED_STEPS];
+        int[] step = new int[1];
+        automaton.addMetricsListener((source, metrics) -> allocated[step[0]++] = metrics.getAllocatedBytes());
+        automaton.run(WARM_STEPS + MEASURED_STEPS);
+        assumeTrue(allocated[0] >= 0, "The JVM does not measure thread allocations");
+        for (int i = WARM_STEPS; i < allocated.length; i++) {
+            assertEquals(0L, allocated[i], "Bytes allocated by step " + i);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link RowKernel} computing whole lane-widths of cells at once with the Vector API
+ * ({@code jdk.incubator.vector}). The eight neighbors of a lane-width of cells are eight
+ * unaligned loads at offsets -1, 0 and +1 of the padded rows, so the sums need no shuffles.
+ * <p>
+ * Two-state rules compare the neighbor sums with each count of the birth and survival masks;
+ * Generations rules, whose dying cells index the transition table, use the scalar kernel.
+ * The cells past the last full lane-width are computed one at a time.
+ * <p>
+ * Loaded by {@link RowKernel#load()} when this class is on the class path and the JVM runs
+ * with {@code --add-modules jdk.incubator.vector}.
+ */
+public class VectorRowKernel extends ScalarRowKernel {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED; // Widest vectors of the CPU.
+
+    @Override
+    public int stepLife(LifeRule rule, byte[] above, byte[] row, byte[] below, byte[] next, int length, int[] leaving) {
+        if (rule.getStates() != 2) {
+            return super.stepLife(rule, above, row, below, next, length, leaving);
+        }
+        int births = rule.getBirths();
+        int survivals = rule.getSurvivals();
+        int changed = 0;
+        int born = 0;
+        int k = 0;
+        for (int bound = SPECIES.loopBound(length); k < bound; k += SPECIES.length()) {
+            ByteVector neighbors = ByteVector.fromArray(SPECIES, above, k)
+                    .add(ByteVector.fromArray(SPECIES, above, k + 1))
+                    .add(ByteVector.fromArray(SPECIES, above, k + 2))
+                    .add(ByteVector.fromArray(SPECIES, row, k))
+                    .add(ByteVector.fromArray(SPECIES, row, k + 2))
+                    .add(ByteVector.fromArray(SPECIES, below, k))
+                    .add(ByteVector.fromArray(SPECIES, below, k + 1))
+                    .add(ByteVector.fromArray(SPECIES, below, k + 2));
+            VectorMask<Byte> birth = SPECIES.maskAll(false);
+            VectorMask<Byte> survival = SPECIES.maskAll(false);
+            for (int n = 0; n <= 8; n++) {
+                if (((births | survivals) >>> n & 1) != 0) {
+                    VectorMask<Byte> count = neighbors.eq((byte) n);
+                    if ((births >>> n & 1) != 0) {
+                        birth = birth.or(count);
+                    }
+                    if ((survivals >>> n & 1) != 0) {
+                        survival = survival.or(count);
+                    }
+                }
+            }
+            ByteVector current = ByteVector.fromArray(SPECIES, row, k + 1);
+            VectorMask<Byte> alive = current.eq((byte) 1);
+            VectorMask<Byte> nextAlive = alive.and(survival).or(birth.andNot(alive));
+            ByteVector result = ByteVector.zero(SPECIES).blend((byte) 1, nextAlive);
+            result.intoArray(next, k);
+            VectorMask<Byte> changes = result.compare(VectorOperators.NE, current);
+            changed += changes.trueCount();
+            born += changes.and(nextAlive).trueCount();
+        }
+        for (; k < length; k++) { // Remaining cells, fewer than a lane-width.
+            int neighbors = above[k] + above[k + 1] + above[k + 2] + row[k] + row[k + 2] + below[k] + below[k + 1] + below[k + 2];
+            int current = row[k + 1];
+            int state = ((current == 1 ? survivals : births) >>> neighbors) & 1;
+            next[k] = (byte) state;
+            if (state != current) {
+                changed++;
+                born += state;
+            }
+        }
+        leaving[0] += born;
+        leaving[1] += changed - born;
+        return changed;
+    }
+
+    @Override
+    public int stepForestFire(byte[] above, byte[] row, byte[] below, byte[] next, int length, int[] transitions) {
+        int burnedOut = 0;
+        int ignited = 0;
+        int k = 0;
+        for (int bound = SPECIES.loopBound(length); k < bound; k += SPECIES.length()) {
+            // The burning state is the largest, so the maximum of the neighbors tells if one burns.
+            ByteVector hottest = ByteVector.fromArray(SPECIES, above, k)
+                    .max(ByteVector.fromArray(SPECIES, above, k + 1))
+                    .max(ByteVector.fromArray(SPECIES, above, k + 2))
+                    .max(ByteVector.fromArray(SPECIES, row, k))
+                    .max(ByteVector.fromArray(SPECIES, row, k + 2))
+                    .max(ByteVector.fromArray(SPECIES, below, k))
+                    .max(ByteVector.fromArray(SPECIES, below, k + 1))
+                    .max(ByteVector.fromArray(SPECIES, below, k + 2));
+            ByteVector current = ByteVector.fromArray(SPECIES, row, k + 1);
+            VectorMask<Byte> burning = current.eq((byte) ForestFire.BURNING);
+            VectorMask<Byte> ignition = current.eq((byte) ForestFire.TREE).and(hottest.eq((byte) ForestFire.BURNING));
+            current.blend((byte) ForestFire.EMPTY, burning).blend((byte) ForestFire.BURNING, ignition).intoArray(next, k);
+            burnedOut += burning.trueCount();
+            ignited += ignition.trueCount();
+        }
+        for (; k < length; k++) { // Remaining cells, fewer than a lane-width.
+            int current = row[k + 1];
+            if (current == ForestFire.BURNING) {
+                next[k] = ForestFire.EMPTY;
+                burnedOut++;
+            } else if (current == ForestFire.TREE && (above[k] == ForestFire.BURNING || above[k + 1] == ForestFire.BURNING
+                    || above[k + 2] == ForestFire.BURNING || row[k] == ForestFire.BURNING || row[k + 2] == ForestFire.BURNING
+                    || below[k] == ForestFire.BURNING || below[k + 1] == ForestFire.BURNING || below[k + 2] == ForestFire.BURNING)) {
+                next[k] = ForestFire.BURNING;
+                ignited++;
+            } else {
+                next[k] = (byte) current;
+            }
+        }
+        transitions[0] += burnedOut;
+        transitions[1] += ignited;
+        return burnedOut + ignited;
+    }
+}